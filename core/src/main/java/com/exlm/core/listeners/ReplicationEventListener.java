@@ -10,11 +10,15 @@ import org.osgi.service.event.EventConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.exlm.core.service.TranslationPipelineMetrics;
 import com.exlm.core.service.TranslationWorkflowConfig;
-import com.exlm.core.workflows.TranslationWorkflowTrigger;
+import com.exlm.core.workflows.TranslationWorkflowQueue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Listens for replication events and triggers translation workflows on click on
@@ -35,7 +39,7 @@ public class ReplicationEventListener implements EventHandler {
 	private ResourceResolverFactory resolverFactory;
 
 	@Reference
-	private TranslationWorkflowTrigger workflowTrigger;
+	private TranslationWorkflowQueue workflowQueue;
 
 	@Reference
 	public SlingRepository slingRepository;
@@ -43,6 +47,9 @@ public class ReplicationEventListener implements EventHandler {
 	@Reference
 	private TranslationWorkflowConfig translationWorkflowConfig;
 
+	@Reference
+	private TranslationPipelineMetrics metrics;
+
 	/**
 	 * Handles the replication event and triggers translation workflows on click on
 	 * English pages.
@@ -52,27 +59,56 @@ public class ReplicationEventListener implements EventHandler {
 	@Override
 	public void handleEvent(Event event) {
 		String[] paths = (String[]) event.getProperty(PATHS);
+		metrics.recordEventReceived(paths != null ? paths.length : 0);
 		String environmentType = translationWorkflowConfig.getEnvironmentType();
-		String[] destinationLanguages = translationWorkflowConfig.getDestinationLanguages();
 		LOGGER.info("Environment is: {}", environmentType);
 		if (!environmentType.contains("non-prod") && paths != null && paths.length > 0) {
-			List<String> englishPaths = Arrays.asList(paths);
-			LOGGER.info("Replication event detected for English pages: {}", englishPaths);
-			initiateWorkflow(englishPaths, destinationLanguages);
+			LOGGER.info("Replication event detected for English pages: {}", Arrays.asList(paths));
+			Map<List<String>, List<String>> pathsByLanguages = routePaths(paths);
+			if (pathsByLanguages.isEmpty()) {
+				metrics.recordEventFiltered();
+				return;
+			}
+			for (Map.Entry<List<String>, List<String>> entry : pathsByLanguages.entrySet()) {
+				initiateWorkflow(entry.getValue(), entry.getKey().toArray(new String[0]));
+			}
 		} else {
+			metrics.recordEventFiltered();
 			LOGGER.info("No paths found in the replication event");
 		}
 	}
 
 	/**
-	 * Initiates translation workflows for the specified paths.
+	 * Groups the paths by the destination languages the routing rules assign to
+	 * them, dropping excluded paths.
+	 *
+	 * @param paths The replicated paths.
+	 * @return The paths keyed by their destination languages.
+	 */
+	private Map<List<String>, List<String>> routePaths(String[] paths) {
+		Map<List<String>, List<String>> pathsByLanguages = new LinkedHashMap<>();
+		for (String path : paths) {
+			String[] destinationLanguages = translationWorkflowConfig.getDestinationLanguages(path);
+			if (destinationLanguages.length == 0) {
+				LOGGER.info("Path excluded from translation by routing rules: {}", path);
+				metrics.recordPathsExcluded(1);
+				continue;
+			}
+			pathsByLanguages.computeIfAbsent(Arrays.asList(destinationLanguages), languages -> new ArrayList<>())
+					.add(path);
+		}
+		return pathsByLanguages;
+	}
+
+	/**
+	 * Queues translation workflows for the specified paths.
 	 *
 	 * @param paths                The paths to initiate workflows for.
 	 * @param destinationLanguages The destination languages for translation.
 	 */
 	private void initiateWorkflow(List<String> paths, String[] destinationLanguages) {
 		try {
-			workflowTrigger.triggerTranslationWorkflow(paths, SOURCE_LANGUAGE, destinationLanguages);
+			workflowQueue.enqueue(paths, SOURCE_LANGUAGE, destinationLanguages);
 		} catch (Exception e) {
 			LOGGER.error("Error initiating workflow for paths: {}", paths, e);
 		}
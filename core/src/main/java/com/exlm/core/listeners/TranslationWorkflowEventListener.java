@@ -0,0 +1,51 @@
+package com.exlm.core.listeners;
+
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.day.cq.workflow.event.WorkflowEvent;
+import com.exlm.core.workflows.TranslationWorkflowQueue;
+import com.exlm.core.workflows.TranslationWorkflowTrigger;
+
+/**
+ * Listens for workflow completion events and removes finished translation
+ * workflows from the in-flight index of {@link TranslationWorkflowTrigger}, freeing
+ * a slot for the next queued translation request.
+ */
+@Component(service = EventHandler.class, immediate = true, property = {
+		EventConstants.EVENT_TOPIC + "=" + WorkflowEvent.EVENT_TOPIC })
+public class TranslationWorkflowEventListener implements EventHandler {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TranslationWorkflowEventListener.class);
+
+	@Reference
+	private TranslationWorkflowTrigger workflowTrigger;
+
+	@Reference
+	private TranslationWorkflowQueue workflowQueue;
+
+	/**
+	 * Handles the workflow event and releases the workflow once it is completed
+	 * or aborted.
+	 *
+	 * @param event The workflow event.
+	 */
+	@Override
+	public void handleEvent(Event event) {
+		Object eventType = event.getProperty(WorkflowEvent.EVENT_TYPE);
+		if (WorkflowEvent.WORKFLOW_COMPLETED_EVENT.equals(eventType)
+				|| WorkflowEvent.WORKFLOW_ABORTED_EVENT.equals(eventType)) {
+			Object workflowId = event.getProperty(WorkflowEvent.WORKFLOW_INSTANCE_ID);
+			if (workflowId != null) {
+				LOGGER.debug("Workflow {} finished, releasing in-flight translations", workflowId);
+				workflowTrigger.releaseWorkflow(workflowId.toString());
+				workflowQueue.workflowFinished();
+			}
+		}
+	}
+}
@@ -0,0 +1,350 @@
+package com.exlm.core.schedulers;
+
+import com.exlm.core.service.TagIdCodec;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.commons.scheduler.ScheduleOptions;
+import org.apache.sling.commons.scheduler.Scheduler;
+import org.apache.sling.settings.SlingSettingsService;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.event.EventAdmin;
+import org.osgi.service.metatype.annotations.Designate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * This job seeds the exl tag tree from an NDJSON export, bypassing the per-tag ExL api sync.
+ * Each line holds one tag, e.g.
+ * {"category":"Feature","hierarchy":"Analytics","name":"Reports","titles":{"de":"Berichte","pt":"Relatorios"}}
+ * where hierarchy is optional and titles are keyed by the EDS locale of tagLocales.
+ * Tag nodes get the same IDs as the ones created by {@link TagSynchScheduler}. The import holds the
+ * sync's {@link TagSyncRunLease} throughout, and is deferred while a sync run holds it.
+ */
+@Component(immediate = true, service = TagBulkImportJob.class)
+@Designate(ocd = TagBulkImportJobConfig.class)
+public class TagBulkImportJob implements Runnable {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    @Reference
+    private Scheduler scheduler;
+
+    @Reference
+    private ResourceResolverFactory resourceResolverFactory;
+
+    @Reference
+    private SlingSettingsService slingSettings;
+
+    @Reference
+    private EventAdmin eventAdmin;
+
+    @Reference
+    private TagIdCodec tagIdCodec;
+
+    private static final String JOB_NAME = "Tag Bulk Import Job";
+    private static final String FW_SLASH = "/";
+    private static final String tagLocalizationKeyPrefix = "jcr:title.";
+    private static final String TAG_NODE_TYPE = "cq:Tag";
+    private static final String TAG_RESOURCE_TYPE = "cq/tagging/components/tag";
+    private static final String GZIP_EXTENSION = ".gz";
+    private static final String IMPORT_MARKER_NAME = "bulk-import";
+    private static final String IMPORT_MARKER_PATH = TagSyncRunLease.LEASE_FOLDER_PATH + FW_SLASH + IMPORT_MARKER_NAME;
+    private static final String CHECKSUM = "checksum";
+
+    private static final String categoryKey = "category";
+    private static final String hierarchyKey = "hierarchy";
+    private static final String nameKey = "name";
+    private static final String titlesKey = "titles";
+
+    private String importFile;
+
+    private int batchSize;
+
+    private long leaseTimeoutMillis;
+
+    private TagSyncRunLease runLease;
+
+    @Activate
+    protected void activate(TagBulkImportJobConfig config) {
+        importFile = config.importFile();
+        batchSize = Math.max(1, config.batchSize());
+        leaseTimeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(1, config.runLeaseTimeout()));
+        if (config.serviceEnabled() && isAuthor()) {
+            if (StringUtils.isBlank(importFile) || !Files.isReadable(Paths.get(importFile))) {
+                LOGGER.error("Tag bulk import file '{}' is not readable, no import job created", importFile);
+                return;
+            }
+            runLease = new TagSyncRunLease(resourceResolverFactory, slingSettings.getSlingId(), leaseTimeoutMillis);
+            schedule(scheduler.NOW());
+            LOGGER.info("Tag bulk import job added for '{}'", importFile);
+        }
+    }
+
+    private void schedule(ScheduleOptions scheduleOptions) {
+        scheduleOptions.name(JOB_NAME);
+        scheduleOptions.canRunConcurrently(false);
+        scheduleOptions.onLeaderOnly(true);
+        scheduler.schedule(this, scheduleOptions);
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        scheduler.unschedule(JOB_NAME);
+    }
+
+    public boolean isAuthor() {
+        return this.slingSettings.getRunModes().contains("author");
+    }
+
+    /**
+     * Open the import file with a buffered reader, decompressing .gz files
+     *
+     * @param path
+     * @return reader
+     * @throws IOException
+     */
+    private BufferedReader openReader(Path path) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        if (path.toString().endsWith(GZIP_EXTENSION)) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /**
+     * Create or update the tag node of a single NDJSON line.
+     *
+     * @param resolver
+     * @param exlTag
+     * @param knownPaths tag paths known to exist, so parents are only looked up once
+     * @param changedCategories categories with changed tags
+     * @return number of node changes
+     */
+    private int importTag(ResourceResolver resolver, JsonObject exlTag, Set<String> knownPaths, Set<String> changedCategories) throws PersistenceException {
+        String category = getString(exlTag, categoryKey);
+        String tagName = getString(exlTag, nameKey);
+        if (StringUtils.isBlank(category) || StringUtils.isBlank(tagName)) {
+            LOGGER.warn("Skipping tag without category or name: {}", exlTag);
+            return 0;
+        }
+
+        int changes = 0;
+        String tagHierarchy = getString(exlTag, hierarchyKey);
+        if (StringUtils.isNotBlank(tagHierarchy)) {
+            // EXLM-720: the hierarchy tag gets a proper jcr:title, same as the sync
+            String parentPath = tagIdCodec.getTagPath(category, tagHierarchy);
+            if (!knownPaths.contains(parentPath)) {
+                changes += getOrCreateTag(resolver, parentPath, tagHierarchy, category + FW_SLASH + tagHierarchy);
+                knownPaths.add(parentPath);
+            }
+        }
+
+        String tagPath = tagIdCodec.getTagPath(category, tagHierarchy, tagName);
+        changes += getOrCreateTag(resolver, tagPath, tagName, category + FW_SLASH + tagName);
+
+        if (exlTag.has(titlesKey) && exlTag.get(titlesKey).isJsonObject()) {
+            ModifiableValueMap mvm = resolver.getResource(tagPath).adaptTo(ModifiableValueMap.class);
+            for (Map.Entry<String, JsonElement> title : exlTag.getAsJsonObject(titlesKey).entrySet()) {
+                if (!title.getValue().isJsonPrimitive()) {
+                    LOGGER.warn("Skipping non-text title '{}' of tag {}", title.getKey(), tagPath);
+                    continue;
+                }
+                String keyName = tagLocalizationKeyPrefix + title.getKey();
+                String localeTagName = title.getValue().getAsString();
+                if (!localeTagName.equals(mvm.get(keyName, String.class))) {
+                    mvm.put(keyName, localeTagName);
+                    changes++;
+                }
+            }
+        }
+        if (changes > 0) {
+            changedCategories.add(StringUtils.lowerCase(category));
+        }
+        return changes;
+    }
+
+    /**
+     * Create the tag node and any missing parents. Parents are created without title, like TagManager does.
+     *
+     * @param resolver
+     * @param tagPath
+     * @param title
+     * @param description
+     * @return number of created nodes
+     */
+    private int getOrCreateTag(ResourceResolver resolver, String tagPath, String title, String description) throws PersistenceException {
+        if (resolver.getResource(tagPath) != null) {
+            return 0;
+        }
+        int changes = 0;
+        String parentPath = StringUtils.substringBeforeLast(tagPath, FW_SLASH);
+        Resource parent = resolver.getResource(parentPath);
+        if (parent == null) {
+            changes += getOrCreateTag(resolver, parentPath, null, null);
+            parent = resolver.getResource(parentPath);
+        }
+        Map<String, Object> props = new HashMap<>();
+        props.put("jcr:primaryType", TAG_NODE_TYPE);
+        props.put("sling:resourceType", TAG_RESOURCE_TYPE);
+        if (title != null) {
+            props.put("jcr:title", title);
+            props.put("jcr:description", description);
+        }
+        resolver.create(parent, StringUtils.substringAfterLast(tagPath, FW_SLASH), props);
+        return changes + 1;
+    }
+
+    /**
+     * Text value of the key; null for missing, null, object or array values
+     *
+     * @param json
+     * @param key
+     * @return value
+     */
+    private String getString(JsonObject json, String key) {
+        JsonElement element = json.get(key);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+    }
+
+    /**
+     * SHA-256 of the import file, recorded once the file was imported so it is not imported again
+     *
+     * @param path
+     * @return checksum
+     * @throws IOException
+     */
+    private String getChecksum(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return DigestUtils.sha256Hex(in);
+        }
+    }
+
+    /**
+     * Record the checksum of the imported file, so reactivations skip the import
+     *
+     * @param resolver
+     * @param checksum
+     * @throws PersistenceException
+     */
+    private void writeImportMarker(ResourceResolver resolver, String checksum) throws PersistenceException {
+        Resource folder = ResourceUtil.getOrCreateResource(resolver, TagSyncRunLease.LEASE_FOLDER_PATH, "sling:Folder", "sling:Folder", false);
+        Resource marker = folder.getChild(IMPORT_MARKER_NAME);
+        if (marker != null) {
+            resolver.delete(marker);
+        }
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("jcr:primaryType", "nt:unstructured");
+        properties.put("importFile", importFile);
+        properties.put(CHECKSUM, checksum);
+        properties.put("completed", Calendar.getInstance());
+        resolver.create(folder, IMPORT_MARKER_NAME, properties);
+        resolver.commit();
+    }
+
+    @Override
+    public void run() {
+        // the import writes the same tags as the sync, so it must not overlap a sync run
+        TagSyncRunLease.Lease lease = runLease.acquire();
+        if (lease == null) {
+            schedule(scheduler.AT(new Date(System.currentTimeMillis() + leaseTimeoutMillis)));
+            LOGGER.info("Tag bulk import of '{}' deferred by {} ms, the tag sync lease is held", importFile, leaseTimeoutMillis);
+            return;
+        }
+        try {
+            importFile(lease);
+        } finally {
+            runLease.release(lease);
+        }
+    }
+
+    /**
+     * Import the file in batches, renewing the lease after each commit
+     *
+     * @param lease
+     */
+    private void importFile(TagSyncRunLease.Lease lease) {
+        long startTime = System.currentTimeMillis();
+        int lines = 0;
+        int imported = 0;
+        int pendingChanges = 0;
+        int commits = 0;
+        Set<String> knownPaths = new HashSet<>();
+        Set<String> changedCategories = new TreeSet<>();
+        Path path = Paths.get(importFile);
+        try (ResourceResolver resolver = resourceResolverFactory.getServiceResourceResolver(TagSynchScheduler.AUTH_INFO);
+             BufferedReader reader = openReader(path)) {
+            String checksum = getChecksum(path);
+            Resource marker = resolver.getResource(IMPORT_MARKER_PATH);
+            if (marker != null && checksum.equals(marker.getValueMap().get(CHECKSUM, String.class))) {
+                LOGGER.info("Tag bulk import of '{}' skipped, file already imported", importFile);
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                if (StringUtils.isBlank(line)) {
+                    continue;
+                }
+                try {
+                    pendingChanges += importTag(resolver, JsonParser.parseString(line).getAsJsonObject(), knownPaths, changedCategories);
+                    imported++;
+                } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+                    LOGGER.error("Skipping invalid json on line {}: {}", lines, e.getMessage());
+                }
+                // commit in batches to keep the transient space and memory flat
+                if (pendingChanges >= batchSize) {
+                    resolver.commit();
+                    commits++;
+                    pendingChanges = 0;
+                    if (!runLease.renew(lease)) {
+                        // committed batches are kept; the file is imported again on the next activation
+                        LOGGER.error("Tag bulk import of '{}' stopped at line {}, the tag sync lease was lost", importFile, lines);
+                        return;
+                    }
+                }
+            }
+            if (resolver.hasChanges()) {
+                resolver.commit();
+                commits++;
+            }
+            writeImportMarker(resolver, checksum);
+            TagSynchScheduler.postTagsSynched(eventAdmin, changedCategories);
+            LOGGER.info("Tag bulk import completed. lines={}, tags={}, commits={}, timeMs={}", lines, imported, commits,
+                    System.currentTimeMillis() - startTime);
+        } catch (LoginException | IOException e) {
+            LOGGER.error("Error occurred during tag bulk import of '{}' at line {}: {}", importFile, lines, e.getMessage(), e);
+        }
+    }
+}
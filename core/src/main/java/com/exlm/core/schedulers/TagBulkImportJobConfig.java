@@ -0,0 +1,22 @@
+package com.exlm.core.schedulers;
+
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.AttributeType;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+@ObjectClassDefinition(name = "Tag Bulk Import Job Configuration", description = "Seeds exl tags from an NDJSON export")
+public @interface TagBulkImportJobConfig {
+
+    @AttributeDefinition(name = "Enabled", description = "Run the import on activation; a file is only imported once, re-importing requires a changed file", type = AttributeType.BOOLEAN)
+    boolean serviceEnabled() default false;
+
+    @AttributeDefinition(name = "Import File", description = "Path of the NDJSON export on the filesystem; files ending in .gz are decompressed", type = AttributeType.STRING)
+    String importFile() default "";
+
+    @AttributeDefinition(name = "Batch Size", description = "Number of tag node changes per commit", type = AttributeType.INTEGER)
+    int batchSize() default 1000;
+
+    @AttributeDefinition(name = "Run Lease Timeout", description = "Seconds after which the tag sync lease held by the import expires without heartbeat; an import finding the lease held is retried after this delay", type = AttributeType.INTEGER)
+    int runLeaseTimeout() default 900;
+
+}
@@ -0,0 +1,252 @@
+package com.exlm.core.schedulers;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.ValueMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive sync schedule driven by the per-category change history of past sync runs.
+ * The scheduler job ticks at the min interval and only syncs the categories that are due.
+ * Every run without changes in a category doubles its interval up to the max interval; a run with changes,
+ * or an active ExL release window, resets it to the min interval. Failed and dry runs do not count as syncs,
+ * they back off from the min interval instead so a failing api is not fetched on every tick.
+ * The schedule is persisted next to the run lease, so it survives restarts and leader changes.
+ */
+public class TagSyncAdaptiveSchedule {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    private static final int HISTORY_SIZE = 10;
+
+    private static final String SCHEDULE_NAME = "adaptive-schedule";
+    private static final String SCHEDULE_PATH = TagSyncRunLease.LEASE_FOLDER_PATH + "/" + SCHEDULE_NAME;
+    private static final String HISTORY = "history";
+    private static final String NEXT_RUN_AT = "nextRunAt";
+    private static final String FAILURES = "failures";
+
+    private long minIntervalMillis;
+
+    private long maxIntervalMillis;
+
+    private volatile List<Instant[]> releaseWindows = new ArrayList<>();
+
+    private final Map<String, CategorySchedule> categories = new TreeMap<>();
+
+    /**
+     * Apply the adaptive settings of the config; the change history is kept
+     *
+     * @param config
+     */
+    public synchronized void configure(TagSynchSchedulerConfig config) {
+        minIntervalMillis = TimeUnit.MINUTES.toMillis(Math.max(1, config.adaptiveMinInterval()));
+        maxIntervalMillis = Math.max(minIntervalMillis, TimeUnit.MINUTES.toMillis(config.adaptiveMaxInterval()));
+        List<Instant[]> windows = new ArrayList<>();
+        for (String releaseWindow : config.releaseWindows()) {
+            if (StringUtils.isBlank(releaseWindow)) {
+                continue;
+            }
+            try {
+                String[] values = releaseWindow.split("/");
+                windows.add(new Instant[] { Instant.parse(values[0].trim()), Instant.parse(values[1].trim()) });
+            } catch (DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+                LOGGER.error("Ignoring invalid ExL release window '{}'", releaseWindow);
+            }
+        }
+        releaseWindows = windows;
+    }
+
+    public long getMinIntervalMillis() {
+        return minIntervalMillis;
+    }
+
+    /**
+     * @param categories categories synced by the run
+     * @param now
+     * @return true if any of the categories should be synced now
+     */
+    public synchronized boolean isDue(Collection<String> categories, long now) {
+        for (String category : categories) {
+            if (isDue(category, now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ticks come every min interval and are never exactly on time, so a tick less than half an interval
+     * before the next run of the category is due already; otherwise the category would be skipped until the tick
+     * after. Categories without history are always due.
+     *
+     * @param category
+     * @param now
+     * @return true if the category should be synced now
+     */
+    public synchronized boolean isDue(String category, long now) {
+        CategorySchedule schedule = categories.get(category);
+        return schedule == null || now + minIntervalMillis / 2 >= schedule.nextRunAt || isInReleaseWindow(now);
+    }
+
+    /**
+     * Record the changes of the categories synced by a run and compute their next run, counted from the start
+     * of the run so the duration of the run does not push the next run past its tick
+     *
+     * @param syncedCategories categories fetched and committed by the run
+     * @param changesByCategory changed tags per category
+     * @param startedAt start of the run
+     */
+    public synchronized void recordRun(Collection<String> syncedCategories, Map<String, Integer> changesByCategory, long startedAt) {
+        for (String category : syncedCategories) {
+            CategorySchedule schedule = categories.computeIfAbsent(category, k -> new CategorySchedule());
+            if (schedule.history.size() == HISTORY_SIZE) {
+                schedule.history.removeFirst();
+            }
+            schedule.history.addLast(changesByCategory.getOrDefault(category, 0));
+            schedule.failures = 0;
+            schedule.nextRunAt = startedAt + getInterval(schedule, startedAt);
+        }
+        if (!syncedCategories.isEmpty()) {
+            LOGGER.info("Next tag sync of {} scheduled. Schedule: {}", syncedCategories, categories);
+        }
+    }
+
+    /**
+     * Advance the categories of a failed or dry run without recording history. The retry interval starts at the
+     * min interval and doubles with every further unsynced run, up to the max interval.
+     *
+     * @param categories categories fetched but not committed by the run
+     * @param startedAt start of the run
+     */
+    public synchronized void recordUnsyncedRun(Collection<String> categories, long startedAt) {
+        for (String category : categories) {
+            CategorySchedule schedule = this.categories.computeIfAbsent(category, k -> new CategorySchedule());
+            long interval = minIntervalMillis;
+            for (int i = 0; i < schedule.failures && interval < maxIntervalMillis; i++) {
+                interval *= 2;
+            }
+            schedule.failures++;
+            schedule.nextRunAt = startedAt + Math.min(interval, maxIntervalMillis);
+        }
+        if (!categories.isEmpty()) {
+            LOGGER.info("Tag sync of {} not completed, retry backed off. Schedule: {}", categories, this.categories);
+        }
+    }
+
+    /**
+     * Replace the schedule with the persisted one, e.g. written by the previous leader
+     *
+     * @param resolver
+     */
+    public synchronized void load(ResourceResolver resolver) {
+        Resource resource = resolver.getResource(SCHEDULE_PATH);
+        if (resource == null) {
+            return;
+        }
+        Map<String, CategorySchedule> loaded = new HashMap<>();
+        for (Resource child : resource.getChildren()) {
+            ValueMap properties = child.getValueMap();
+            CategorySchedule schedule = new CategorySchedule();
+            Integer[] history = properties.get(HISTORY, new Integer[0]);
+            schedule.history.addAll(Arrays.asList(history).subList(Math.max(0, history.length - HISTORY_SIZE), history.length));
+            schedule.nextRunAt = properties.get(NEXT_RUN_AT, 0L);
+            schedule.failures = properties.get(FAILURES, 0);
+            loaded.put(child.getName(), schedule);
+        }
+        categories.clear();
+        categories.putAll(loaded);
+    }
+
+    /**
+     * Persist the schedule next to the run lease
+     *
+     * @param resolver
+     * @throws PersistenceException
+     */
+    public synchronized void save(ResourceResolver resolver) throws PersistenceException {
+        Resource folder = ResourceUtil.getOrCreateResource(resolver, TagSyncRunLease.LEASE_FOLDER_PATH, "sling:Folder", "sling:Folder", false);
+        Resource existing = folder.getChild(SCHEDULE_NAME);
+        if (existing != null) {
+            resolver.delete(existing);
+        }
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("jcr:primaryType", "nt:unstructured");
+        Resource resource = resolver.create(folder, SCHEDULE_NAME, properties);
+        for (Map.Entry<String, CategorySchedule> entry : categories.entrySet()) {
+            Map<String, Object> categoryProperties = new HashMap<>();
+            categoryProperties.put("jcr:primaryType", "nt:unstructured");
+            categoryProperties.put(HISTORY, entry.getValue().history.toArray(new Integer[0]));
+            categoryProperties.put(NEXT_RUN_AT, entry.getValue().nextRunAt);
+            categoryProperties.put(FAILURES, entry.getValue().failures);
+            resolver.create(resource, entry.getKey(), categoryProperties);
+        }
+        resolver.commit();
+    }
+
+    /**
+     * Interval doubling for every run since the last change in the category
+     *
+     * @param schedule
+     * @param now
+     * @return interval in millis
+     */
+    private long getInterval(CategorySchedule schedule, long now) {
+        if (isInReleaseWindow(now)) {
+            return minIntervalMillis;
+        }
+        int idleRuns = 0;
+        for (Iterator<Integer> it = schedule.history.descendingIterator(); it.hasNext() && it.next() == 0; ) {
+            idleRuns++;
+        }
+        long interval = minIntervalMillis;
+        for (int i = 0; i < idleRuns && interval < maxIntervalMillis; i++) {
+            interval *= 2;
+        }
+        return Math.min(interval, maxIntervalMillis);
+    }
+
+    private boolean isInReleaseWindow(long now) {
+        Instant instant = Instant.ofEpochMilli(now);
+        for (Instant[] window : releaseWindows) {
+            if (!instant.isBefore(window[0]) && instant.isBefore(window[1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Change history and next run of a single category
+     */
+    private static class CategorySchedule {
+
+        private final Deque<Integer> history = new ArrayDeque<>(HISTORY_SIZE);
+
+        private long nextRunAt;
+
+        private int failures;
+
+        @Override
+        public String toString() {
+            return "{history=" + history + ", nextRunAt=" + Instant.ofEpochMilli(nextRunAt) + ", failures=" + failures + "}";
+        }
+    }
+}
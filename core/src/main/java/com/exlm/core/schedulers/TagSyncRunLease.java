@@ -0,0 +1,165 @@
+package com.exlm.core.schedulers;
+
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.ValueMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cluster wide lease of the tag sync run, persisted under /var so only one instance syncs at a time.
+ * The lease expires unless the owning run renews it, so a crashed instance cannot block the sync.
+ */
+public class TagSyncRunLease {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    public static final String LEASE_FOLDER_PATH = "/var/exlm/tag-sync";
+    private static final String LEASE_NAME = "lease";
+    private static final String LEASE_PATH = LEASE_FOLDER_PATH + "/" + LEASE_NAME;
+    private static final String OWNER = "owner";
+    private static final String HEARTBEAT = "heartbeat";
+    private static final String EXPIRES = "expires";
+
+    private final ResourceResolverFactory resourceResolverFactory;
+
+    private final String instanceId;
+
+    private final long timeoutMillis;
+
+    /**
+     * @param resourceResolverFactory
+     * @param instanceId sling id of this instance
+     * @param timeoutMillis lease expiry without heartbeat
+     */
+    public TagSyncRunLease(ResourceResolverFactory resourceResolverFactory, String instanceId, long timeoutMillis) {
+        this.resourceResolverFactory = resourceResolverFactory;
+        this.instanceId = instanceId;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Acquire the lease unless another run holds an unexpired lease
+     *
+     * @return the lease, or null if the lease is held by another run
+     */
+    public Lease acquire() {
+        String owner = instanceId + ":" + UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        try (ResourceResolver resolver = resourceResolverFactory.getServiceResourceResolver(TagSynchScheduler.AUTH_INFO)) {
+            Resource lease = resolver.getResource(LEASE_PATH);
+            if (lease != null) {
+                ValueMap properties = lease.getValueMap();
+                Calendar expires = properties.get(EXPIRES, Calendar.class);
+                if (expires != null && expires.getTimeInMillis() > now) {
+                    LOGGER.info("Tag sync lease held by '{}' until {}", properties.get(OWNER, String.class), expires.getTime());
+                    return null;
+                }
+                LOGGER.warn("Taking over expired tag sync lease of '{}'", properties.get(OWNER, String.class));
+                writeLease(lease.adaptTo(ModifiableValueMap.class), owner, now);
+            } else {
+                Resource folder = ResourceUtil.getOrCreateResource(resolver, LEASE_FOLDER_PATH, "sling:Folder", "sling:Folder", false);
+                Map<String, Object> properties = new HashMap<>();
+                properties.put("jcr:primaryType", "nt:unstructured");
+                writeLease(properties, owner, now);
+                resolver.create(folder, LEASE_NAME, properties);
+            }
+            resolver.commit();
+
+            // a concurrent acquire from another cluster member either fails to commit or overwrites the owner
+            resolver.refresh();
+            Resource committed = resolver.getResource(LEASE_PATH);
+            if (committed == null || !owner.equals(committed.getValueMap().get(OWNER, String.class))) {
+                return null;
+            }
+            return new Lease(owner, now);
+        } catch (LoginException | PersistenceException e) {
+            LOGGER.warn("Unable to acquire tag sync lease: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Extend the lease, at most every third of the timeout
+     *
+     * @param lease
+     * @return false if the lease was lost to another run
+     */
+    public boolean renew(Lease lease) {
+        long now = System.currentTimeMillis();
+        if (now - lease.renewedAt < timeoutMillis / 3) {
+            return true;
+        }
+        try (ResourceResolver resolver = resourceResolverFactory.getServiceResourceResolver(TagSynchScheduler.AUTH_INFO)) {
+            Resource resource = resolver.getResource(LEASE_PATH);
+            if (resource == null || !lease.owner.equals(resource.getValueMap().get(OWNER, String.class))) {
+                LOGGER.warn("Tag sync lease '{}' lost", lease.owner);
+                return false;
+            }
+            writeLease(resource.adaptTo(ModifiableValueMap.class), lease.owner, now);
+            resolver.commit();
+            lease.renewedAt = now;
+            return true;
+        } catch (LoginException | PersistenceException e) {
+            // keep running; the lease is lost only once it expires and another run takes it over
+            LOGGER.warn("Unable to renew tag sync lease: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Release the lease if still owned by the run
+     *
+     * @param lease
+     */
+    public void release(Lease lease) {
+        try (ResourceResolver resolver = resourceResolverFactory.getServiceResourceResolver(TagSynchScheduler.AUTH_INFO)) {
+            Resource resource = resolver.getResource(LEASE_PATH);
+            if (resource != null && lease.owner.equals(resource.getValueMap().get(OWNER, String.class))) {
+                resolver.delete(resource);
+                resolver.commit();
+            }
+        } catch (LoginException | PersistenceException e) {
+            LOGGER.warn("Unable to release tag sync lease, it expires in {} ms: {}", timeoutMillis, e.getMessage());
+        }
+    }
+
+    private void writeLease(Map<String, Object> properties, String owner, long now) {
+        Calendar heartbeat = Calendar.getInstance();
+        heartbeat.setTimeInMillis(now);
+        Calendar expires = Calendar.getInstance();
+        expires.setTimeInMillis(now + timeoutMillis);
+        properties.put(OWNER, owner);
+        properties.put(HEARTBEAT, heartbeat);
+        properties.put(EXPIRES, expires);
+    }
+
+    /**
+     * Lease held by a single run
+     */
+    public static class Lease {
+
+        private final String owner;
+
+        private long renewedAt;
+
+        private Lease(String owner, long renewedAt) {
+            this.owner = owner;
+            this.renewedAt = renewedAt;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+    }
+}
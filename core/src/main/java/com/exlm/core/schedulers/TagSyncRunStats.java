@@ -0,0 +1,262 @@
+package com.exlm.core.schedulers;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics of a single tag sync run: ExL api requests and bytes, JCR
+ * operations and wall time. Used to benchmark the sync, e.g. against a local
+ * ExL api stub configured in exlTagApis, and as the report of dry runs.
+ */
+public class TagSyncRunStats {
+
+    private final long startTime = System.nanoTime();
+
+    private long endTime;
+
+    private int requests;
+
+    private int failedRequests;
+
+    private int cachedRequests;
+
+    private long bytes;
+
+    private int tagCreates;
+
+    private int propertyUpdates;
+
+    private int pendingChanges;
+
+    private final List<Integer> commitSizes = new ArrayList<>();
+
+    private final List<String> replicatedPaths = new ArrayList<>();
+
+    private final Map<String, EndpointStats> endpoints = new LinkedHashMap<>();
+
+    private final Map<String, Integer> changesByCategory = new TreeMap<>();
+
+    /**
+     * Record an ExL api request
+     *
+     * @param url
+     * @param responseBytes
+     * @param durationNanos
+     * @param success
+     */
+    public void recordRequest(String url, long responseBytes, long durationNanos, boolean success) {
+        requests++;
+        if (!success) {
+            failedRequests++;
+        }
+        bytes += Math.max(0, responseBytes);
+        endpoints.computeIfAbsent(getEndpoint(url), k -> new EndpointStats()).record(durationNanos);
+    }
+
+    /**
+     * Record an ExL api request served from the dry run response cache
+     */
+    public void recordCachedRequest() {
+        cachedRequests++;
+    }
+
+    public void recordTagCreate() {
+        tagCreates++;
+        pendingChanges++;
+    }
+
+    public void recordPropertyUpdate() {
+        propertyUpdates++;
+        pendingChanges++;
+    }
+
+    public void recordChange(String category) {
+        changesByCategory.merge(category, 1, Integer::sum);
+    }
+
+    /**
+     * Record a commit of the tag creates and property updates since the last commit
+     */
+    public void recordCommit() {
+        commitSizes.add(pendingChanges);
+        pendingChanges = 0;
+    }
+
+    public void recordReplication(String path) {
+        replicatedPaths.add(path);
+    }
+
+    public void complete() {
+        endTime = System.nanoTime();
+    }
+
+    public int getRequests() {
+        return requests;
+    }
+
+    public int getFailedRequests() {
+        return failedRequests;
+    }
+
+    public int getCachedRequests() {
+        return cachedRequests;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int getTagCreates() {
+        return tagCreates;
+    }
+
+    public int getPropertyUpdates() {
+        return propertyUpdates;
+    }
+
+    public int getCommits() {
+        return commitSizes.size();
+    }
+
+    public List<Integer> getCommitSizes() {
+        return commitSizes;
+    }
+
+    public int getReplications() {
+        return replicatedPaths.size();
+    }
+
+    public List<String> getReplicatedPaths() {
+        return replicatedPaths;
+    }
+
+    public long getWallTimeMillis() {
+        long end = endTime > 0 ? endTime : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startTime);
+    }
+
+    public Set<String> getChangedCategories() {
+        return changesByCategory.keySet();
+    }
+
+    public Map<String, Integer> getChangesByCategory() {
+        return changesByCategory;
+    }
+
+    public Map<String, EndpointStats> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Structured report of the run: counts, the slowest endpoints, commit sizes and replication fan-out
+     *
+     * @param slowestEndpoints number of endpoints to report, slowest request first
+     * @return report json
+     */
+    public JsonObject toJson(int slowestEndpoints) {
+        JsonObject json = new JsonObject();
+        JsonObject requestsJson = new JsonObject();
+        requestsJson.addProperty("total", requests + cachedRequests);
+        requestsJson.addProperty("fetched", requests);
+        requestsJson.addProperty("cached", cachedRequests);
+        requestsJson.addProperty("failed", failedRequests);
+        requestsJson.addProperty("bytes", bytes);
+        json.add("requests", requestsJson);
+
+        JsonArray endpointsJson = new JsonArray();
+        endpoints.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, EndpointStats> e) -> e.getValue().maxNanos).reversed())
+                .limit(slowestEndpoints)
+                .forEach(e -> {
+                    JsonObject endpointJson = new JsonObject();
+                    endpointJson.addProperty("endpoint", e.getKey());
+                    endpointJson.addProperty("requests", e.getValue().getRequests());
+                    endpointJson.addProperty("totalMs", e.getValue().getTotalMillis());
+                    endpointJson.addProperty("maxMs", e.getValue().getMaxMillis());
+                    endpointsJson.add(endpointJson);
+                });
+        json.add("slowestEndpoints", endpointsJson);
+
+        json.addProperty("tagCreates", tagCreates);
+        json.addProperty("propertyUpdates", propertyUpdates);
+        JsonObject changesJson = new JsonObject();
+        changesByCategory.forEach(changesJson::addProperty);
+        json.add("changesByCategory", changesJson);
+
+        JsonObject commitsJson = new JsonObject();
+        JsonArray commitSizesJson = new JsonArray();
+        commitSizes.forEach(commitSizesJson::add);
+        commitsJson.addProperty("count", commitSizes.size());
+        commitsJson.addProperty("maxSize", commitSizes.stream().mapToInt(Integer::intValue).max().orElse(0));
+        commitsJson.add("sizes", commitSizesJson);
+        json.add("commits", commitsJson);
+
+        JsonObject replicationsJson = new JsonObject();
+        JsonArray pathsJson = new JsonArray();
+        replicatedPaths.forEach(pathsJson::add);
+        replicationsJson.addProperty("count", replicatedPaths.size());
+        replicationsJson.add("paths", pathsJson);
+        json.add("replications", replicationsJson);
+
+        json.addProperty("wallTimeMs", getWallTimeMillis());
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return "requests=" + requests + ", failedRequests=" + failedRequests + ", cachedRequests=" + cachedRequests
+                + ", bytes=" + bytes + ", tagCreates=" + tagCreates + ", propertyUpdates=" + propertyUpdates
+                + ", commits=" + commitSizes + ", replications=" + replicatedPaths.size() + ", changes=" + changesByCategory
+                + ", wallTimeMs=" + getWallTimeMillis();
+    }
+
+    /**
+     * Endpoint of the api url, i.e. the url without query string
+     *
+     * @param url
+     * @return endpoint
+     */
+    private static String getEndpoint(String url) {
+        int queryIndex = url.indexOf('?');
+        return queryIndex < 0 ? url : url.substring(0, queryIndex);
+    }
+
+    /**
+     * Request count and timings of a single ExL api endpoint
+     */
+    public static class EndpointStats {
+
+        private int requests;
+
+        private long totalNanos;
+
+        private long maxNanos;
+
+        private void record(long durationNanos) {
+            requests++;
+            totalNanos += durationNanos;
+            maxNanos = Math.max(maxNanos, durationNanos);
+        }
+
+        public int getRequests() {
+            return requests;
+        }
+
+        public long getTotalMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(totalNanos);
+        }
+
+        public long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.exlm.core.schedulers;
 import com.day.cq.replication.ReplicationActionType;
 import com.day.cq.replication.ReplicationException;
 import com.day.cq.replication.Replicator;
+import com.exlm.core.service.TagIdCodec;
 import com.exlm.core.utils.EXLUtils;
 import com.day.cq.tagging.InvalidTagFormatException;
 import com.day.cq.tagging.Tag;
@@ -14,17 +15,23 @@ import org.apache.http.HttpStatus;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
 import org.apache.sling.api.resource.*;
 import org.apache.sling.commons.json.JSONException;
 import org.apache.sling.commons.scheduler.ScheduleOptions;
 import org.apache.sling.commons.scheduler.Scheduler;
+import org.apache.sling.discovery.TopologyEvent;
+import org.apache.sling.discovery.TopologyEventListener;
 import org.apache.sling.settings.SlingSettingsService;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.metatype.annotations.Designate;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -35,14 +42,19 @@ import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 /**
  * This scheduler will synch configured ExL SCCM meta tags to AEM tags
  */
-@Component(immediate = true, service = TagSynchScheduler.class)
+@Component(immediate = true, service = { TagSynchScheduler.class, TopologyEventListener.class })
 @Designate(ocd = TagSynchSchedulerConfig.class)
-public class TagSynchScheduler implements Runnable {
+public class TagSynchScheduler implements Runnable, TopologyEventListener {
 
     private final Logger LOGGER = LoggerFactory.getLogger(this.getClass());
 
@@ -58,6 +70,12 @@ public class TagSynchScheduler implements Runnable {
     @Reference
     private Replicator replicator;
 
+    @Reference
+    private EventAdmin eventAdmin;
+
+    @Reference
+    private TagIdCodec tagIdCodec;
+
     private int schedulerID;
 
     private String[] exlAPIs;
@@ -67,8 +85,6 @@ public class TagSynchScheduler implements Runnable {
     private static final int CONNECT_TIMEOUT = 10000;
     private static final int SOCKET_TIMEOUT = 30000;
 
-    private static String tagNamespace = "exl:";
-
     private static final String FW_SLASH = "/";
     private static final String solutionTagName = "Solution";
     private static final String nestedElementKey = "Nested";
@@ -77,13 +93,52 @@ public class TagSynchScheduler implements Runnable {
     private static final String tagLocalizationKeyPrefix = "jcr:title.";
     private static final String featureTagName = "feature";
     private static final String exlApiEnglishKey = "Name_en";
-    private static String exlTagPath = "/content/cq:tags/exl";
     private static final String TAXONOMY_FOLDER_PATH = "/content/exlm/taxonomy";
 
     private CloseableHttpClient httpClient;
 
+    private TagSyncRunStats runStats = new TagSyncRunStats();
+
+    private final TagSyncAdaptiveSchedule adaptiveSchedule = new TagSyncAdaptiveSchedule();
+
+    private boolean adaptiveScheduling;
+
+    private TagSyncRunLease runLease;
+
+    /**
+     * Guards against overlapping runs in this JVM, e.g. with schedulerConcurrent or after a reschedule
+     */
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    /**
+     * Incremented to cancel the current run; a run stops at its next checkpoint once the generation changed
+     */
+    private final AtomicInteger runGeneration = new AtomicInteger();
+
+    private static final long CANCEL_WAIT_SECONDS = 60;
+
+    private boolean dryRun;
+
+    /**
+     * ExL api responses of dry runs, so repeated dry runs with adjusted configs only fetch new urls;
+     * bounded to {@link #DRY_RUN_CACHE_SIZE} urls, expired responses are dropped after each run
+     */
+    private final Map<String, CachedResponse> dryRunResponses = new ConcurrentHashMap<>();
+
+    private static final long DRY_RUN_CACHE_TTL = TimeUnit.HOURS.toMillis(1);
+    private static final int DRY_RUN_CACHE_SIZE = 1000;
+    private static final int DRY_RUN_SLOWEST_ENDPOINTS = 5;
+    private static final String DRY_RUN_REPORT_NAME = "dry-run-report";
+
     public static final String EXL_SERVICE_USER = "exl-service-user";
 
+    /**
+     * Event posted after a sync changed tags, with the changed categories in {@link #PROPERTY_CATEGORIES}
+     */
+    public static final String TOPIC_TAGS_SYNCHED = "com/exlm/core/schedulers/TagSynchScheduler/SYNCHED";
+
+    public static final String PROPERTY_CATEGORIES = "categories";
+
     public static final Map<String, Object> AUTH_INFO =
             Collections.<String, Object>singletonMap(ResourceResolverFactory.SUBSERVICE, EXL_SERVICE_USER);
 
@@ -95,6 +150,10 @@ public class TagSynchScheduler implements Runnable {
             httpClient = EXLUtils.getHttpClient();
             exlAPIs = config.exlTagApis();
             tagLocales = config.tagLocales();
+            adaptiveScheduling = config.adaptiveScheduling();
+            adaptiveSchedule.configure(config);
+            configureDryRun(config.dryRun());
+            runLease = new TagSyncRunLease(resourceResolverFactory, slingSettings.getSlingId(), TimeUnit.SECONDS.toMillis(config.runLeaseTimeout()));
             addScheduler(config);
             LOGGER.info("Activating Scheduler Job '{}'", schedulerID);
         }
@@ -103,15 +162,85 @@ public class TagSynchScheduler implements Runnable {
     @Modified
     protected void modified(TagSynchSchedulerConfig config) {
         removeScheduler();
+        cancelRun("reconfiguration", true);
         schedulerID = config.schedulerName().hashCode(); // update schedulerID
         exlAPIs = config.exlTagApis();
         tagLocales = config.tagLocales();
+        adaptiveScheduling = config.adaptiveScheduling();
+        adaptiveSchedule.configure(config);
+        configureDryRun(config.dryRun());
+        runLease = new TagSyncRunLease(resourceResolverFactory, slingSettings.getSlingId(), TimeUnit.SECONDS.toMillis(config.runLeaseTimeout()));
         addScheduler(config);
     }
 
     @Deactivate
     protected void deactivate(TagSynchSchedulerConfig config) {
         removeScheduler();
+        cancelRun("deactivation", true);
+    }
+
+    /**
+     * Enable or disable dry runs; the response cache is only kept while dry runs are enabled
+     *
+     * @param enabled
+     */
+    private void configureDryRun(boolean enabled) {
+        dryRun = enabled;
+        if (enabled) {
+            LOGGER.warn("Tag sync dry run enabled: scheduled runs only fetch and report, no tags are synced until dryRun is disabled");
+        } else {
+            dryRunResponses.clear();
+        }
+    }
+
+    @Override
+    public void handleTopologyEvent(TopologyEvent event) {
+        // a run started as leader must not continue once another instance took over the scheduler
+        if (event.getNewView() != null && !event.getNewView().getLocalInstance().isLeader() && runLock.isLocked()) {
+            cancelRun("leader change", false);
+        }
+    }
+
+    /**
+     * Cancel the current run; the run stops at its next check, i.e. once the current ExL api request completed
+     *
+     * @param reason
+     * @param wait wait until the run stopped, so a new run never overlaps the old one
+     */
+    private void cancelRun(String reason, boolean wait) {
+        runGeneration.incrementAndGet();
+        if (!runLock.isLocked()) {
+            return;
+        }
+        LOGGER.info("Cancelling running Tag Sync Scheduler due to {}", reason);
+        if (!wait) {
+            // the run lease keeps a new leader from overlapping the cancelled run
+            return;
+        }
+        try {
+            if (runLock.tryLock(CANCEL_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                runLock.unlock();
+            } else {
+                LOGGER.warn("Tag Sync Scheduler did not stop within {} seconds", CANCEL_WAIT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stop the run if it was cancelled or its cluster lease was lost
+     *
+     * @param generation
+     * @param lease
+     */
+    private void checkRunActive(int generation, TagSyncRunLease.Lease lease) {
+        if (generation != runGeneration.get()) {
+            throw new CancellationException("run cancelled");
+        }
+        if (!runLease.renew(lease)) {
+            throw new CancellationException("run lease lost");
+        }
     }
 
     /**
@@ -127,7 +256,10 @@ public class TagSynchScheduler implements Runnable {
      */
     private void addScheduler(TagSynchSchedulerConfig config) {
         if (config.serviceEnabled()) {
-            ScheduleOptions scheduleOptions = scheduler.EXPR(config.schedulerExpression());
+            // adaptive mode ticks at the min interval; run() skips ticks until the adaptive schedule is due
+            ScheduleOptions scheduleOptions = config.adaptiveScheduling()
+                    ? scheduler.PERIODIC(TimeUnit.MILLISECONDS.toSeconds(adaptiveSchedule.getMinIntervalMillis()))
+                    : scheduler.EXPR(config.schedulerExpression());
             scheduleOptions.name(String.valueOf(schedulerID));
             scheduleOptions.canRunConcurrently(config.schedulerConcurrent());
             scheduleOptions.onLeaderOnly(true);
@@ -142,16 +274,6 @@ public class TagSynchScheduler implements Runnable {
         return this.slingSettings.getRunModes().contains("author");
     }
 
-    /**
-     * Derive tag ID using tagName using Base64 encoding
-     *
-     * @param tagName
-     * @return derivedTagID
-     */
-    private String deriveTagID(String tagName) {
-        return Base64.getEncoder().encodeToString(tagName.getBytes());
-    }
-
     /**
      * Persist/update the Tag node (always in EN) properties that hold the localized title
      * e.g. Node "/content/cq:tags/exl/experience-level/Experienced", props: [jcr:title:fr, jcr:title:it, etc]
@@ -168,10 +290,43 @@ public class TagSynchScheduler implements Runnable {
             ModifiableValueMap mvm = tagResource.adaptTo(ModifiableValueMap.class);
             String keyName = tagLocalizationKeyPrefix + locale;
             String localeTagName = ((JsonObject) exlTag).getAsJsonPrimitive(nameElementKey).getAsString();
-            mvm.put(keyName, localeTagName);
+            // only write changed titles, so unchanged categories are not reported as synched
+            if (!localeTagName.equals(mvm.get(keyName, String.class))) {
+                mvm.put(keyName, localeTagName);
+                runStats.recordPropertyUpdate();
+                runStats.recordChange(getTagCategory(englishTagID));
+            }
         }
     }
 
+    /**
+     * Create the tag unless it already exists; TagManager.createTag would return the existing tag unchanged.
+     *
+     * @param tagManager
+     * @param tagId
+     * @param title
+     * @param description
+     * @throws InvalidTagFormatException
+     */
+    private void createTagIfAbsent(TagManager tagManager, String tagId, String title, String description) throws InvalidTagFormatException {
+        if (tagManager.resolve(tagId) == null) {
+            // no auto save: tags are committed per category, which the dry run reports as commit sizes
+            tagManager.createTag(tagId, title, description, false);
+            runStats.recordTagCreate();
+            runStats.recordChange(getTagCategory(tagId));
+        }
+    }
+
+    /**
+     * Category of the tag ID, i.e. the tag node name directly under the exl namespace
+     *
+     * @param tagId
+     * @return category
+     */
+    private static String getTagCategory(String tagId) {
+        return StringUtils.substringBefore(StringUtils.removeStart(tagId, TagIdCodec.TAG_NAMESPACE), FW_SLASH);
+    }
+
     /**
      * Wrapper method to route to either a) Create the AEM tag or b) Update Tag properties. Error is swallowed and logged.
      * AEM Tag translations are persisted via properties of EN tag node. ExL api has separate http calls for each locale.
@@ -190,7 +345,7 @@ public class TagSynchScheduler implements Runnable {
             // non-EN locales are persisted as tag node properties; find corresponding EN tag
             if (((JsonObject) exlTag).getAsJsonPrimitive(exlApiEnglishKey) != null) {
                 String englishTagName = ((JsonObject) exlTag).getAsJsonPrimitive(exlApiEnglishKey).getAsString();
-                String englishTagID = tagNamespace + StringUtils.lowerCase(parentTag.toLowerCase()) + FW_SLASH + deriveTagID(englishTagName);
+                String englishTagID = tagIdCodec.getTagId(parentTag, englishTagName);
                 persistTagLocalization(tagManager, englishTagID, exlTag, locale);
             }
         }
@@ -205,25 +360,23 @@ public class TagSynchScheduler implements Runnable {
      * @param tagHierarchy
      */
     private void createAEMTag(TagManager tagManager, String parentTag, String tagName, String tagHierarchy) {
-        String optionalTagHierarchy = "";
         if (StringUtils.isNotBlank(tagHierarchy)) {
-            optionalTagHierarchy = deriveTagID(tagHierarchy) + FW_SLASH;
             // EXLM-720: create the hierarchy tag first, so it has a proper jcr:title
             // ex: given exl/feature/campaign/subscriptions, below will create a proper exl/feature/campaign tag node
-            String tagHierarchyId = tagNamespace + StringUtils.lowerCase(parentTag) + FW_SLASH + deriveTagID(tagHierarchy);
+            String tagHierarchyId = tagIdCodec.getTagId(parentTag, tagHierarchy);
             try {
-                Tag hierarchyTag = tagManager.createTag(tagHierarchyId, tagHierarchy, parentTag + FW_SLASH + tagHierarchy);
+                createTagIfAbsent(tagManager, tagHierarchyId, tagHierarchy, parentTag + FW_SLASH + tagHierarchy);
             } catch (InvalidTagFormatException e) {
                 LOGGER.error("Error while creating tag {} : {}", tagHierarchyId, e.getMessage());
             }
         }
 
         // derive cq:tag node
-        String tagId = tagNamespace + StringUtils.lowerCase(parentTag) + FW_SLASH + optionalTagHierarchy + deriveTagID(tagName);
+        String tagId = tagIdCodec.getTagId(parentTag, tagHierarchy, tagName);
         try {
             // we can create the parent tag separately if it needs a jcr:title but unless it's required
             // we let the api create the parent tag automatically but without the title
-            Tag tag = tagManager.createTag(tagId, tagName, parentTag + FW_SLASH + tagName);
+            createTagIfAbsent(tagManager, tagId, tagName, parentTag + FW_SLASH + tagName);
         } catch (InvalidTagFormatException e) {
             LOGGER.error("Error while creating tag {} : {}", tagId, e.getMessage());
         }
@@ -235,8 +388,10 @@ public class TagSynchScheduler implements Runnable {
      * @param tagManager
      * @param apiURL
      * @param solutionTagElement
+     * @param generation run generation, checked before each fetch
+     * @param lease run lease, renewed before each fetch
      */
-    private void createFeatureTags(TagManager tagManager, String apiURL, JsonElement solutionTagElement) throws IOException {
+    private void createFeatureTags(TagManager tagManager, String apiURL, JsonElement solutionTagElement, int generation, TagSyncRunLease.Lease lease) throws IOException {
         //        For each solutionName provided as parameter
         //          fetch https://experienceleague.adobe.com/api/features?full=true&page_size=1000&Solution=solutionName
         //          if empty data, do nothing.  ex "Acrobat Sign"
@@ -257,23 +412,12 @@ public class TagSynchScheduler implements Runnable {
         List<String[]> tagLocalesList = Arrays.stream(tagLocales).map(s -> s.split(",")).collect(Collectors.toList());
         for (String[] locale : tagLocalesList) {
         //for (String locale : tagLocales) {
+            // a solution fetches every locale, so check per fetch to stop within a single request
+            checkRunActive(generation, lease);
             String featureApiURL = apiURL + "&Solution=" + URLEncoder.encode(solutionName, StandardCharsets.UTF_8.toString()) + "&lang=" + locale[0];
-            HttpGet httpGet = new HttpGet(featureApiURL);
-            RequestConfig config = RequestConfig.custom()
-                    .setConnectTimeout(CONNECT_TIMEOUT)
-                    .setConnectionRequestTimeout(CONNECT_TIMEOUT)
-                    .setSocketTimeout(SOCKET_TIMEOUT)
-                    .build();
-            httpGet.setConfig(config);
-
-            CloseableHttpResponse response = null;
-
-            response = httpClient.execute(httpGet);
-            int statusValidate = response.getStatusLine().getStatusCode();
-            LOGGER.info("The status code from url '{}' is '{}'", featureApiURL, statusValidate);
-            if (statusValidate == HttpStatus.SC_OK || statusValidate == HttpStatus.SC_NO_CONTENT) {
-                try {
-                    JsonObject responseJson = EXLUtils.getResponseJson(response);
+            try {
+                JsonObject responseJson = fetchExlJson(featureApiURL);
+                if (responseJson != null) {
                     JsonArray exlTagsArray = responseJson.getAsJsonArray("data");
                     for (JsonElement exlTag : exlTagsArray) {
                         String tagName = ((JsonObject) exlTag).getAsJsonPrimitive(nameElementKey).getAsString();
@@ -282,13 +426,13 @@ public class TagSynchScheduler implements Runnable {
                         } else {
                             // non-EN locales are persisted as tag node properties; find corresponding EN tag
                             String englishTagName = ((JsonObject) exlTag).getAsJsonPrimitive(exlApiEnglishKey).getAsString();
-                            String englishTagID = tagNamespace + StringUtils.lowerCase(featureTagName) + FW_SLASH + deriveTagID(solutionName) + FW_SLASH + deriveTagID(englishTagName);
+                            String englishTagID = tagIdCodec.getTagId(featureTagName, solutionName, englishTagName);
                             persistTagLocalization(tagManager, englishTagID, exlTag, locale[1]);
                         }
                     }
-                } catch (JSONException jsonException) {
-                    LOGGER.error("Error while parsing json from url '{}'. Error: {}", featureApiURL, jsonException.getMessage());
                 }
+            } catch (JSONException jsonException) {
+                LOGGER.error("Error while parsing json from url '{}'. Error: {}", featureApiURL, jsonException.getMessage());
             }
         }
     }
@@ -375,18 +519,185 @@ public class TagSynchScheduler implements Runnable {
      * @param resourceResolver The resource resolver.
      */
     private void replicatePage(String pagePath, ResourceResolver resourceResolver) throws ReplicationException {
+        if (dryRun) {
+            runStats.recordReplication(pagePath);
+            return;
+        }
         Session session = resourceResolver.adaptTo(Session.class);
         if (session != null) {
             replicator.replicate(session, ReplicationActionType.ACTIVATE, pagePath);
+            runStats.recordReplication(pagePath);
             LOGGER.info("Successfully replicated page: {}", pagePath);
         } else {
             LOGGER.error("Unable to adapt resource resolver to JCR session.");
         }
     }
 
+    /**
+     * Fetch the json of an ExL api url. The response is buffered so its size can be recorded in the run stats.
+     *
+     * @param apiURL
+     * @return json response, or null if the api responded with an unexpected status code
+     * @throws IOException
+     * @throws JSONException
+     */
+    private JsonObject fetchExlJson(String apiURL) throws IOException, JSONException {
+        if (dryRun) {
+            CachedResponse cachedResponse = dryRunResponses.get(apiURL);
+            if (cachedResponse != null && System.currentTimeMillis() - cachedResponse.fetchedAt < DRY_RUN_CACHE_TTL) {
+                runStats.recordCachedRequest();
+                return cachedResponse.json;
+            }
+        }
+        HttpGet httpGet = new HttpGet(apiURL);
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(CONNECT_TIMEOUT)
+                .setConnectionRequestTimeout(CONNECT_TIMEOUT)
+                .setSocketTimeout(SOCKET_TIMEOUT)
+                .build();
+        httpGet.setConfig(config);
+
+        long startTime = System.nanoTime();
+        try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
+            int statusValidate = response.getStatusLine().getStatusCode();
+            LOGGER.info("The status code from url '{}' is '{}'", apiURL, statusValidate);
+            if (statusValidate == HttpStatus.SC_OK || statusValidate == HttpStatus.SC_NO_CONTENT) {
+                long responseBytes = 0;
+                if (response.getEntity() != null) {
+                    response.setEntity(new BufferedHttpEntity(response.getEntity()));
+                    responseBytes = response.getEntity().getContentLength();
+                }
+                JsonObject responseJson = EXLUtils.getResponseJson(response);
+                runStats.recordRequest(apiURL, responseBytes, System.nanoTime() - startTime, true);
+                if (dryRun && responseJson != null && dryRunResponses.size() < DRY_RUN_CACHE_SIZE) {
+                    dryRunResponses.put(apiURL, new CachedResponse(responseJson));
+                }
+                return responseJson;
+            }
+            EntityUtils.consume(response.getEntity());
+            runStats.recordRequest(apiURL, 0, System.nanoTime() - startTime, false);
+            return null;
+        }
+    }
+
+    /**
+     * Notify listeners, e.g. the taxonomy export, about the tag categories changed by a sync
+     *
+     * @param eventAdmin
+     * @param changedCategories
+     */
+    static void postTagsSynched(EventAdmin eventAdmin, Collection<String> changedCategories) {
+        if (!changedCategories.isEmpty()) {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put(PROPERTY_CATEGORIES, changedCategories.toArray(new String[0]));
+            eventAdmin.postEvent(new Event(TOPIC_TAGS_SYNCHED, properties));
+        }
+    }
+
+    /**
+     * Persist the dry run report, replacing the report of the previous dry run
+     *
+     * @param resolver
+     * @param report
+     * @throws PersistenceException
+     */
+    private void writeDryRunReport(ResourceResolver resolver, JsonObject report) throws PersistenceException {
+        Resource folder = ResourceUtil.getOrCreateResource(resolver, TagSyncRunLease.LEASE_FOLDER_PATH, "sling:Folder", "sling:Folder", false);
+        Resource previousReport = folder.getChild(DRY_RUN_REPORT_NAME);
+        if (previousReport != null) {
+            resolver.delete(previousReport);
+        }
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("jcr:primaryType", "nt:unstructured");
+        properties.put("jcr:created", Calendar.getInstance());
+        properties.put("report", report.toString());
+        resolver.create(folder, DRY_RUN_REPORT_NAME, properties);
+        resolver.commit();
+    }
+
+    /**
+     * Stats of the last (or currently running) sync run
+     *
+     * @return run stats
+     */
+    public TagSyncRunStats getLastRunStats() {
+        return runStats;
+    }
+
+    /**
+     * Categories synced by a configured ExL api; the solutions api also syncs the features
+     *
+     * @param parentTagName
+     * @return categories
+     */
+    private static List<String> getCategories(String parentTagName) {
+        List<String> categories = new ArrayList<>();
+        categories.add(StringUtils.lowerCase(parentTagName));
+        if (parentTagName.equals(solutionTagName)) {
+            categories.add(featureTagName);
+        }
+        return categories;
+    }
+
+    /**
+     * Reload the persisted adaptive schedule, written by the last run on any instance, and check it
+     *
+     * @param now
+     * @return true if any configured category is due
+     */
+    private boolean isAdaptiveScheduleDue(long now) {
+        try (ResourceResolver resolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO)) {
+            adaptiveSchedule.load(resolver);
+        } catch (LoginException e) {
+            LOGGER.warn("Unable to load the adaptive tag sync schedule: {}", e.getMessage());
+        }
+        Set<String> categories = new TreeSet<>();
+        Arrays.stream(exlAPIs).map(s -> s.split(",")).filter(a -> StringUtils.isBlank(a[2]))
+                .forEach(a -> categories.addAll(getCategories(a[0])));
+        return adaptiveSchedule.isDue(categories, now);
+    }
+
+    /**
+     * Record the outcome of a run in the adaptive schedule and persist it
+     *
+     * @param syncedCategories categories fetched by the run
+     * @param committedCategories categories committed by the run
+     * @param startedAt
+     */
+    private void recordAdaptiveSchedule(Set<String> syncedCategories, Set<String> committedCategories, long startedAt) {
+        Set<String> unsyncedCategories = new TreeSet<>(syncedCategories);
+        unsyncedCategories.removeAll(committedCategories);
+        adaptiveSchedule.recordRun(committedCategories, runStats.getChangesByCategory(), startedAt);
+        adaptiveSchedule.recordUnsyncedRun(unsyncedCategories, startedAt);
+        try (ResourceResolver resolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO)) {
+            adaptiveSchedule.save(resolver);
+        } catch (LoginException | PersistenceException e) {
+            LOGGER.warn("Unable to persist the adaptive tag sync schedule: {}", e.getMessage());
+        }
+    }
+
     @Override
     public void run() {
+        long startedAt = System.currentTimeMillis();
+        if (adaptiveScheduling && !isAdaptiveScheduleDue(startedAt)) {
+            LOGGER.debug("Tag Sync Scheduler skipped, adaptive schedule not due");
+            return;
+        }
+        if (!runLock.tryLock()) {
+            LOGGER.info("Tag Sync Scheduler skipped, previous run still active");
+            return;
+        }
+        int generation = runGeneration.get();
+        TagSyncRunLease.Lease lease = runLease.acquire();
+        if (lease == null) {
+            runLock.unlock();
+            LOGGER.info("Tag Sync Scheduler skipped, run lease held by another run");
+            return;
+        }
         ResourceResolver resolver = null;
+        runStats = new TagSyncRunStats();
+        Set<String> syncedCategories = new TreeSet<>();
+        Set<String> committedCategories = new TreeSet<>();
         try {
             resolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO);
             TagManager tagManager = resolver.adaptTo(TagManager.class);
@@ -404,34 +715,29 @@ public class TagSynchScheduler implements Runnable {
                 String parentTagName = values[0];
                 String apiURL = values[1];
                 String jsonFormat = values[3];
+                List<String> categories = getCategories(parentTagName);
+                if (adaptiveScheduling && !adaptiveSchedule.isDue(categories, startedAt)) {
+                    LOGGER.debug("Tag {} skipped, adaptive schedule not due", parentTagName);
+                    continue;
+                }
+                syncedCategories.addAll(categories);
 
                 // fetch json for each locale, EN should be always first
                 // each tagLocalesList elements has 2 values; eg. "pt-BR","pt"
                 // 1st value is param for Exl api call; 2nd value the ISO2 required by EDS
                 for (String[] locale : tagLocalesList) {
+                    checkRunActive(generation, lease);
                     LOGGER.info("Tag {}: URL {}: Format {}", parentTagName, apiURL, jsonFormat);
 
                     String apiLocaleURL = apiURL + "&lang=" + locale[0];
-                    HttpGet httpGet = new HttpGet(apiLocaleURL);
-                    RequestConfig config = RequestConfig.custom()
-                            .setConnectTimeout(CONNECT_TIMEOUT)
-                            .setConnectionRequestTimeout(CONNECT_TIMEOUT)
-                            .setSocketTimeout(SOCKET_TIMEOUT)
-                            .build();
-                    httpGet.setConfig(config);
-
-                    CloseableHttpResponse response = null;
                     try {
-                        response = httpClient.execute(httpGet);
-                        int statusValidate = response.getStatusLine().getStatusCode();
-                        LOGGER.info("The status code from url '{}' is '{}'", apiURL, statusValidate);
-                        if (statusValidate == HttpStatus.SC_OK || statusValidate == HttpStatus.SC_NO_CONTENT) {
-                            JsonObject responseJson = EXLUtils.getResponseJson(response);
+                        JsonObject responseJson = fetchExlJson(apiLocaleURL);
+                        if (responseJson != null) {
                             JsonArray exlTagsArray = responseJson.getAsJsonArray("data");
                             for (JsonElement exlTag : exlTagsArray) {
                                 if (parentTagName.equals(solutionTagName)) {
                                     createAEMSolutionTag(tagManager, parentTagName, exlTag);
-                                    createFeatureTags(tagManager, arrSolutionsAPI[1], exlTag);
+                                    createFeatureTags(tagManager, arrSolutionsAPI[1], exlTag, generation, lease);
                                 } else if (jsonFormat.equals("no-format") && !parentTagName.equals(solutionTagName)) {
                                     createAEMTag(tagManager, parentTagName, exlTag.getAsString(), null);
                                 } else {
@@ -446,16 +752,66 @@ public class TagSynchScheduler implements Runnable {
                     }
                 }
                 // commit for each tag category
-                resolver.commit();
+                checkRunActive(generation, lease);
+                if (dryRun) {
+                    // the diff of this category is counted, drop it so the next category starts from the tag tree
+                    resolver.revert();
+                } else {
+                    resolver.commit();
+                    committedCategories.addAll(categories);
+                }
+                runStats.recordCommit();
             }
 
             // publish exl tags
             replicateTaxonomyPages(resolver);
-            LOGGER.info("Tag Sync Scheduler completed.");
+            runStats.complete();
+            if (dryRun) {
+                JsonObject report = runStats.toJson(DRY_RUN_SLOWEST_ENDPOINTS);
+                report.addProperty("dryRun", true);
+                writeDryRunReport(resolver, report);
+                LOGGER.info("Tag Sync Scheduler dry run completed. Report: {}", report);
+                return;
+            }
+            postTagsSynched(eventAdmin, runStats.getChangedCategories());
+            LOGGER.info("Tag Sync Scheduler completed. {}", runStats);
         } catch (LoginException | PersistenceException e) {
             LOGGER.error("Error occurred during while processing Tag Sync Scheduler {}", e.getMessage(), e);
+        } catch (CancellationException e) {
+            // categories committed before the cancellation are kept; the next run syncs the rest
+            resolver.revert();
+            if (!dryRun) {
+                postTagsSynched(eventAdmin, runStats.getChangedCategories());
+            }
+            LOGGER.warn("Tag Sync Scheduler stopped, {}. {}", e.getMessage(), runStats);
         } finally {
-            resolver.close();
+            if (resolver != null) {
+                resolver.close();
+            }
+            // failed and dry runs advance the schedule too, so a failing api is not fetched on every tick
+            if (adaptiveScheduling) {
+                recordAdaptiveSchedule(syncedCategories, committedCategories, startedAt);
+            }
+            if (dryRun) {
+                long now = System.currentTimeMillis();
+                dryRunResponses.values().removeIf(cachedResponse -> now - cachedResponse.fetchedAt >= DRY_RUN_CACHE_TTL);
+            }
+            runLease.release(lease);
+            runLock.unlock();
+        }
+    }
+
+    /**
+     * ExL api response kept for dry runs
+     */
+    private static class CachedResponse {
+
+        private final JsonObject json;
+
+        private final long fetchedAt = System.currentTimeMillis();
+
+        private CachedResponse(JsonObject json) {
+            this.json = json;
         }
     }
 }
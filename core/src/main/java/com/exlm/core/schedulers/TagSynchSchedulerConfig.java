@@ -28,4 +28,22 @@ public @interface TagSynchSchedulerConfig {
     @AttributeDefinition(name = "EXL Tag Locales", description = "Locales for EXL Tags")
     String[] tagLocales() default { "en", "en" };
 
+    @AttributeDefinition(name = "Adaptive Scheduling", description = "Ignore the cron expression and adapt the sync interval to the observed change rate", type = AttributeType.BOOLEAN)
+    boolean adaptiveScheduling() default false;
+
+    @AttributeDefinition(name = "Adaptive Min Interval", description = "Shortest sync interval in minutes, used after changes and during release windows", type = AttributeType.INTEGER)
+    int adaptiveMinInterval() default 60;
+
+    @AttributeDefinition(name = "Adaptive Max Interval", description = "Longest sync interval in minutes, reached by doubling the interval after each run without changes", type = AttributeType.INTEGER)
+    int adaptiveMaxInterval() default 1440;
+
+    @AttributeDefinition(name = "ExL Release Windows", description = "ISO-8601 start/end instants with the min interval, e.g. 2024-05-14T00:00:00Z/2024-05-16T00:00:00Z")
+    String[] releaseWindows() default {};
+
+    @AttributeDefinition(name = "Run Lease Timeout", description = "Seconds after which the cluster wide sync lease of a run without heartbeat expires", type = AttributeType.INTEGER)
+    int runLeaseTimeout() default 900;
+
+    @AttributeDefinition(name = "Dry Run", description = "Fetch and diff against the tag tree without writing tags or replicating; writes a cost report to /var/exlm/tag-sync/dry-run-report. Replaces the scheduled sync while enabled", type = AttributeType.BOOLEAN)
+    boolean dryRun() default false;
+
 }
\ No newline at end of file
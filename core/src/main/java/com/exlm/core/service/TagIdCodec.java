@@ -0,0 +1,206 @@
+package com.exlm.core.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.AttributeType;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Derives exl tag IDs and paths from ExL tag names. Each name is the Base64 of
+ * its UTF-8 bytes, e.g. "exl:feature/QW5hbHl0aWNz/UmVwb3J0cw==". Encoded names
+ * are memoized in a bounded LRU map, and IDs are built in per-thread buffers
+ * that are dropped on deactivation.
+ */
+@Component(service = TagIdCodec.class, immediate = true)
+@Designate(ocd = TagIdCodec.Config.class)
+public class TagIdCodec {
+
+	public static final String TAG_NAMESPACE = "exl:";
+	public static final String EXL_TAG_PATH = "/content/cq:tags/exl";
+
+	private static final char SLASH = '/';
+	private static final char PAD = '=';
+	private static final int MAX_BUFFER_BYTES = 4096;
+	private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+			.toCharArray();
+
+	@ObjectClassDefinition(name = "Tag ID Codec Configuration")
+	public @interface Config {
+		@AttributeDefinition(name = "Memo Size", description = "Maximum number of encoded tag names kept in memory", type = AttributeType.INTEGER)
+		int memoSize() default 20000;
+	}
+
+	private volatile Map<String, String> memo = Collections.emptyMap();
+
+	private volatile ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+	@Activate
+	@Modified
+	protected void activate(Config config) {
+		final int memoSize = Math.max(1, config.memoSize());
+		memo = Collections.synchronizedMap(new LinkedHashMap<String, String>(1024, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > memoSize;
+			}
+		});
+	}
+
+	@Deactivate
+	protected void deactivate() {
+		memo.clear();
+		// replacing the ThreadLocal releases the buffers of every thread, remove() would only clear the calling one
+		buffers = ThreadLocal.withInitial(Buffers::new);
+	}
+
+	/**
+	 * Encodes a tag name into its tag node name.
+	 *
+	 * @param name The ExL tag name, e.g. "Reports".
+	 * @return The Base64 of the UTF-8 bytes of the name.
+	 */
+	public String encodeName(String name) {
+		String encoded = memo.get(name);
+		if (encoded == null) {
+			StringBuilder builder = buffers.get().builder;
+			builder.setLength(0);
+			appendEncoded(builder, name);
+			encoded = release(builder);
+			memo.put(name, encoded);
+		}
+		return encoded;
+	}
+
+	/**
+	 * @param category The tag category, e.g. "Feature".
+	 * @param name     The ExL tag name.
+	 * @return The tag ID, e.g. "exl:feature/UmVwb3J0cw==".
+	 */
+	public String getTagId(String category, String name) {
+		return getTagId(category, null, name);
+	}
+
+	/**
+	 * @param category  The tag category, e.g. "Feature".
+	 * @param hierarchy The optional parent tag name, e.g. the solution of a feature.
+	 * @param name      The ExL tag name.
+	 * @return The tag ID, e.g. "exl:feature/QW5hbHl0aWNz/UmVwb3J0cw==".
+	 */
+	public String getTagId(String category, String hierarchy, String name) {
+		return build(TAG_NAMESPACE, category, hierarchy, name);
+	}
+
+	/**
+	 * @param category The tag category.
+	 * @param name     The ExL tag name.
+	 * @return The tag node path, e.g. "/content/cq:tags/exl/feature/UmVwb3J0cw==".
+	 */
+	public String getTagPath(String category, String name) {
+		return getTagPath(category, null, name);
+	}
+
+	/**
+	 * @param category  The tag category.
+	 * @param hierarchy The optional parent tag name.
+	 * @param name      The ExL tag name.
+	 * @return The tag node path.
+	 */
+	public String getTagPath(String category, String hierarchy, String name) {
+		return build(EXL_TAG_PATH + SLASH, category, hierarchy, name);
+	}
+
+	private String build(String prefix, String category, String hierarchy, String name) {
+		String encodedHierarchy = StringUtils.isNotBlank(hierarchy) ? encodeName(hierarchy) : null;
+		String encodedName = encodeName(name);
+		StringBuilder builder = buffers.get().builder;
+		builder.setLength(0);
+		builder.append(prefix).append(category.toLowerCase(Locale.ROOT)).append(SLASH);
+		if (encodedHierarchy != null) {
+			builder.append(encodedHierarchy).append(SLASH);
+		}
+		return release(builder.append(encodedName));
+	}
+
+	/**
+	 * Returns the built string, shrinking the per-thread builder again if a long
+	 * name grew it past {@link #MAX_BUFFER_BYTES}.
+	 */
+	private static String release(StringBuilder builder) {
+		String value = builder.toString();
+		if (builder.capacity() > MAX_BUFFER_BYTES) {
+			builder.setLength(0);
+			builder.trimToSize();
+		}
+		return value;
+	}
+
+	/**
+	 * Appends the Base64 of the UTF-8 bytes of the name, same as
+	 * {@code Base64.getEncoder().encodeToString(name.getBytes(UTF_8))}.
+	 */
+	private void appendEncoded(StringBuilder builder, String name) {
+		Buffers threadBuffers = buffers.get();
+		ByteBuffer bytes = threadBuffers.utf8(name);
+		byte[] array = bytes.array();
+		int length = bytes.position();
+		int i = 0;
+		for (; i + 2 < length; i += 3) {
+			int bits = (array[i] & 0xff) << 16 | (array[i + 1] & 0xff) << 8 | (array[i + 2] & 0xff);
+			builder.append(BASE64[bits >>> 18]).append(BASE64[bits >>> 12 & 0x3f])
+					.append(BASE64[bits >>> 6 & 0x3f]).append(BASE64[bits & 0x3f]);
+		}
+		if (i < length) {
+			int bits = (array[i] & 0xff) << 16 | (i + 1 < length ? (array[i + 1] & 0xff) << 8 : 0);
+			builder.append(BASE64[bits >>> 18]).append(BASE64[bits >>> 12 & 0x3f]);
+			builder.append(i + 1 < length ? BASE64[bits >>> 6 & 0x3f] : PAD).append(PAD);
+		}
+	}
+
+	/**
+	 * Per-thread encoding buffers, grown on demand up to {@link #MAX_BUFFER_BYTES}
+	 * and reused across names; longer names are encoded in a one-off buffer.
+	 */
+	private static final class Buffers {
+
+		private final StringBuilder builder = new StringBuilder(128);
+
+		private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		private ByteBuffer bytes = ByteBuffer.allocate(256);
+
+		private ByteBuffer utf8(String name) {
+			int maxLength = (int) (name.length() * encoder.maxBytesPerChar());
+			ByteBuffer target = bytes;
+			if (maxLength > MAX_BUFFER_BYTES) {
+				target = ByteBuffer.allocate(maxLength);
+			} else if (bytes.capacity() < maxLength) {
+				bytes = ByteBuffer.allocate(maxLength);
+				target = bytes;
+			}
+			target.clear();
+			encoder.reset();
+			encoder.encode(CharBuffer.wrap(name), target, true);
+			encoder.flush(target);
+			return target;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.exlm.core.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.AttributeType;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps requested locales to the suffix of the localized tag title properties,
+ * e.g. pt-BR to pt for jcr:title.pt. Configured for all run modes, unlike the
+ * author only tag sync.
+ */
+@Component(service = TagLocaleMappingService.class, immediate = true)
+@Designate(ocd = TagLocaleMappingService.Config.class)
+public class TagLocaleMappingService {
+
+	private static final String DEFAULT_LOCALE = "en";
+
+	@ObjectClassDefinition(name = "Tag Locale Mapping Configuration")
+	public @interface Config {
+		@AttributeDefinition(name = "Tag Locales", description = "Requested locale and tag title locale, as locale,titleLocale "
+				+ "e.g. pt-BR,pt. Same format as the tagLocales of the tag sync; unmapped locales use their language", type = AttributeType.STRING)
+		String[] tagLocales() default { "pt-BR,pt", "zh-TW,tw", "zh-CN,zh" };
+	}
+
+	private volatile Map<String, String> mappings = Collections.emptyMap();
+
+	@Activate
+	@Modified
+	protected void activate(Config config) {
+		Map<String, String> tagLocales = new HashMap<>();
+		if (config.tagLocales() != null) {
+			for (String tagLocale : config.tagLocales()) {
+				String[] values = tagLocale.split(",");
+				if (values.length == 2) {
+					tagLocales.put(values[0].trim().toLowerCase(Locale.ROOT), values[1].trim());
+				}
+			}
+		}
+		mappings = tagLocales;
+	}
+
+	/**
+	 * Maps the requested locale to the suffix of the localized title property.
+	 *
+	 * @param locale The requested locale, e.g. "de", "pt-BR" or "zh_TW".
+	 * @return The title locale, e.g. "de", "pt" or "tw".
+	 */
+	public String getTitleLocale(String locale) {
+		if (StringUtils.isBlank(locale)) {
+			return DEFAULT_LOCALE;
+		}
+		String normalized = locale.replace('_', '-').toLowerCase(Locale.ROOT);
+		String mapped = mappings.get(normalized);
+		return mapped != null ? mapped : StringUtils.substringBefore(normalized, "-");
+	}
+}
@@ -0,0 +1,234 @@
+package com.exlm.core.service;
+
+import com.exlm.core.schedulers.TagSynchScheduler;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.AttributeType;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves batches of exl tag IDs to localized titles from a bounded in-memory
+ * cache. Entries are evicted when their tag node changes and when a tag sync
+ * reports the category as changed.
+ */
+@Component(service = { TagTitleLookupService.class, EventHandler.class, ResourceChangeListener.class }, immediate = true, property = {
+		EventConstants.EVENT_TOPIC + "=" + TagSynchScheduler.TOPIC_TAGS_SYNCHED,
+		ResourceChangeListener.PATHS + "=" + TagIdCodec.EXL_TAG_PATH,
+		ResourceChangeListener.CHANGES + "=ADDED",
+		ResourceChangeListener.CHANGES + "=CHANGED",
+		ResourceChangeListener.CHANGES + "=REMOVED" })
+@Designate(ocd = TagTitleLookupService.Config.class)
+public class TagTitleLookupService implements EventHandler, ExternalResourceChangeListener {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TagTitleLookupService.class);
+
+	private static final String TITLE = "jcr:title";
+	private static final String LOCALIZED_TITLE_PREFIX = "jcr:title.";
+
+	/** Cached marker for tag IDs without a tag node. */
+	private static final TagTitles MISSING = new TagTitles(null, Collections.<String, String>emptyMap());
+
+	@Reference
+	private ResourceResolverFactory resourceResolverFactory;
+
+	@Reference
+	private TagLocaleMappingService tagLocaleMappingService;
+
+	@ObjectClassDefinition(name = "Tag Title Lookup Configuration")
+	public @interface Config {
+		@AttributeDefinition(name = "Cache Size", description = "Maximum number of tags kept in memory", type = AttributeType.INTEGER)
+		int cacheSize() default 10000;
+	}
+
+	private volatile Map<String, TagTitles> cache = Collections.emptyMap();
+
+	/** Incremented on every eviction, so titles read before an eviction are not cached after it. */
+	private final AtomicLong evictions = new AtomicLong();
+
+	@Activate
+	@Modified
+	protected void activate(Config config) {
+		final int cacheSize = Math.max(1, config.cacheSize());
+		cache = Collections.synchronizedMap(new LinkedHashMap<String, TagTitles>(256, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, TagTitles> eldest) {
+				return size() > cacheSize;
+			}
+		});
+	}
+
+	/**
+	 * Resolves the localized titles of the given exl tag IDs. Tags missing a
+	 * title in the locale fall back to their jcr:title.
+	 *
+	 * @param tagIds The tag IDs, e.g. "exl:role/QWRtaW4=".
+	 * @param locale The locale, e.g. "de", "pt-BR" or "zh_TW".
+	 * @return The titles keyed by tag ID, without unknown tags.
+	 */
+	public Map<String, String> getTitles(Collection<String> tagIds, String locale) {
+		String titleLocale = tagLocaleMappingService.getTitleLocale(locale);
+		Map<String, String> titles = new LinkedHashMap<>();
+		List<String> misses = new ArrayList<>();
+		for (String tagId : tagIds) {
+			TagTitles tagTitles = cache.get(tagId);
+			if (tagTitles == null) {
+				misses.add(tagId);
+			} else {
+				addTitle(titles, tagId, tagTitles, titleLocale);
+			}
+		}
+		if (!misses.isEmpty()) {
+			loadTitles(misses, titles, titleLocale);
+		}
+		return titles;
+	}
+
+	/**
+	 * Resolves the localized title of a single exl tag ID.
+	 *
+	 * @param tagId  The tag ID.
+	 * @param locale The locale.
+	 * @return The title, or {@code null} if the tag does not exist.
+	 */
+	public String getTitle(String tagId, String locale) {
+		return getTitles(Collections.singletonList(tagId), locale).get(tagId);
+	}
+
+	@Override
+	public void handleEvent(Event event) {
+		String[] categories = (String[]) event.getProperty(TagSynchScheduler.PROPERTY_CATEGORIES);
+		if (categories != null) {
+			for (String category : categories) {
+				evictPrefix(TagIdCodec.TAG_NAMESPACE + category + "/");
+			}
+		}
+	}
+
+	@Override
+	public void onChange(List<ResourceChange> changes) {
+		for (ResourceChange change : changes) {
+			String path = change.getPath();
+			if (!path.startsWith(TagIdCodec.EXL_TAG_PATH + "/")) {
+				continue;
+			}
+			String tagId = TagIdCodec.TAG_NAMESPACE + path.substring(TagIdCodec.EXL_TAG_PATH.length() + 1);
+			evictions.incrementAndGet();
+			cache.remove(tagId);
+			if (change.getType() == ResourceChange.ChangeType.REMOVED) {
+				evictPrefix(tagId + "/");
+			}
+		}
+	}
+
+	private void loadTitles(List<String> tagIds, Map<String, String> titles, String titleLocale) {
+		try (ResourceResolver resolver = resourceResolverFactory
+				.getServiceResourceResolver(TagSynchScheduler.AUTH_INFO)) {
+			for (String tagId : tagIds) {
+				String tagPath = getTagPath(tagId);
+				if (tagPath == null) {
+					continue;
+				}
+				long generation = evictions.get();
+				Resource tag = resolver.getResource(tagPath);
+				TagTitles tagTitles = tag != null ? readTitles(tag.getValueMap()) : MISSING;
+				synchronized (cache) {
+					// an eviction since the read may have been for a change the read missed
+					if (evictions.get() == generation) {
+						cache.put(tagId, tagTitles);
+					}
+				}
+				addTitle(titles, tagId, tagTitles, titleLocale);
+			}
+		} catch (LoginException e) {
+			LOG.error("Error resolving tag titles for {}", tagIds, e);
+		}
+	}
+
+	/**
+	 * Resolves the tag node path of an exl tag ID, rejecting IDs with empty,
+	 * "." or ".." segments so lookups stay within the exl namespace.
+	 *
+	 * @param tagId The tag ID.
+	 * @return The tag node path, or {@code null} if the ID is not a valid exl tag ID.
+	 */
+	private static String getTagPath(String tagId) {
+		if (tagId == null || !tagId.startsWith(TagIdCodec.TAG_NAMESPACE)) {
+			return null;
+		}
+		String localId = tagId.substring(TagIdCodec.TAG_NAMESPACE.length());
+		for (String segment : localId.split("/", -1)) {
+			if (segment.isEmpty() || ".".equals(segment) || "..".equals(segment)) {
+				return null;
+			}
+		}
+		return TagIdCodec.EXL_TAG_PATH + "/" + localId;
+	}
+
+	private TagTitles readTitles(ValueMap properties) {
+		Map<String, String> localizedTitles = new HashMap<>();
+		for (Map.Entry<String, Object> property : properties.entrySet()) {
+			if (property.getKey().startsWith(LOCALIZED_TITLE_PREFIX)) {
+				localizedTitles.put(property.getKey().substring(LOCALIZED_TITLE_PREFIX.length()),
+						String.valueOf(property.getValue()));
+			}
+		}
+		return new TagTitles(properties.get(TITLE, String.class), localizedTitles);
+	}
+
+	private void addTitle(Map<String, String> titles, String tagId, TagTitles tagTitles, String titleLocale) {
+		String title = tagTitles.localizedTitles.get(titleLocale);
+		if (title == null) {
+			title = tagTitles.title;
+		}
+		if (title != null) {
+			titles.put(tagId, title);
+		}
+	}
+
+	private void evictPrefix(String prefix) {
+		evictions.incrementAndGet();
+		synchronized (cache) {
+			cache.keySet().removeIf(tagId -> tagId.startsWith(prefix));
+		}
+	}
+
+	private static final class TagTitles {
+
+		private final String title;
+
+		private final Map<String, String> localizedTitles;
+
+		private TagTitles(String title, Map<String, String> localizedTitles) {
+			this.title = title;
+			this.localizedTitles = localizedTitles;
+		}
+	}
+}
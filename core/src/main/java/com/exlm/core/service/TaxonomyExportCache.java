@@ -0,0 +1,329 @@
+package com.exlm.core.service;
+
+import com.exlm.core.schedulers.TagSynchScheduler;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Precomputed, compressed JSON export of the exl taxonomy per locale. Tags are
+ * read once per category and kept in memory; when tags change, either through a
+ * tag sync or through replication to publish, only the changed categories are
+ * read again on the next request and the per-locale documents are re-rendered.
+ */
+@Component(service = { TaxonomyExportCache.class, EventHandler.class, ResourceChangeListener.class }, immediate = true, property = {
+		EventConstants.EVENT_TOPIC + "=" + TagSynchScheduler.TOPIC_TAGS_SYNCHED,
+		ResourceChangeListener.PATHS + "=" + TagIdCodec.EXL_TAG_PATH,
+		ResourceChangeListener.CHANGES + "=ADDED",
+		ResourceChangeListener.CHANGES + "=CHANGED",
+		ResourceChangeListener.CHANGES + "=REMOVED" })
+public class TaxonomyExportCache implements EventHandler, ExternalResourceChangeListener {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TaxonomyExportCache.class);
+
+	public static final String DEFAULT_LOCALE = "en";
+
+	private static final String TAG_NODE_TYPE = "cq:Tag";
+	private static final String TITLE = "jcr:title";
+	private static final String LOCALIZED_TITLE_PREFIX = "jcr:title.";
+
+	@Reference
+	private ResourceResolverFactory resourceResolverFactory;
+
+	private Map<String, List<TagEntry>> tagsByCategory;
+
+	private Set<String> locales = Collections.emptySet();
+
+	/** Categories changed since they were read, read again on the next render. */
+	private final Set<String> staleCategories = new TreeSet<>();
+
+	private final Map<String, TaxonomyExport> exports = new ConcurrentHashMap<>();
+
+	@Override
+	public void handleEvent(Event event) {
+		String[] categories = (String[]) event.getProperty(TagSynchScheduler.PROPERTY_CATEGORIES);
+		if (categories != null && categories.length > 0) {
+			invalidate(Arrays.asList(categories));
+		}
+	}
+
+	@Override
+	public void onChange(List<ResourceChange> changes) {
+		Set<String> categories = new TreeSet<>();
+		for (ResourceChange change : changes) {
+			String path = change.getPath();
+			if (path.equals(TagIdCodec.EXL_TAG_PATH)) {
+				invalidateAll();
+				return;
+			}
+			if (path.startsWith(TagIdCodec.EXL_TAG_PATH + "/")) {
+				categories.add(StringUtils.substringBefore(path.substring(TagIdCodec.EXL_TAG_PATH.length() + 1), "/"));
+			}
+		}
+		if (!categories.isEmpty()) {
+			invalidate(categories);
+		}
+	}
+
+	/**
+	 * Returns the export of the given locale, building it on first use.
+	 *
+	 * @param locale The EDS locale, e.g. "de" or "pt".
+	 * @return The export, or {@code null} if no tag has a title in the locale.
+	 */
+	public TaxonomyExport getExport(String locale) {
+		TaxonomyExport export = exports.get(locale);
+		if (export == null) {
+			export = render(locale);
+		}
+		return export;
+	}
+
+	/**
+	 * Marks the given categories to be read again and drops the rendered exports.
+	 *
+	 * @param categories The changed tag categories.
+	 */
+	public synchronized void invalidate(Collection<String> categories) {
+		if (tagsByCategory != null) {
+			staleCategories.addAll(categories);
+		}
+		exports.clear();
+		LOG.debug("Taxonomy export invalidated for categories: {}", categories);
+	}
+
+	/**
+	 * Drops all tags and rendered exports, e.g. when the exl tag root changed.
+	 */
+	private synchronized void invalidateAll() {
+		tagsByCategory = null;
+		staleCategories.clear();
+		exports.clear();
+		LOG.debug("Taxonomy export invalidated");
+	}
+
+	private synchronized TaxonomyExport render(String locale) {
+		TaxonomyExport export = exports.get(locale);
+		if (export != null) {
+			return export;
+		}
+		if (tagsByCategory == null && !load()) {
+			return null;
+		}
+		if (!staleCategories.isEmpty() && !refresh()) {
+			return null;
+		}
+		if (!DEFAULT_LOCALE.equals(locale) && !locales.contains(locale)) {
+			return null;
+		}
+
+		JsonObject categoriesJson = new JsonObject();
+		for (Map.Entry<String, List<TagEntry>> category : tagsByCategory.entrySet()) {
+			JsonArray tagsJson = new JsonArray();
+			for (TagEntry tag : category.getValue()) {
+				JsonObject tagJson = new JsonObject();
+				tagJson.addProperty("id", tag.id);
+				String title = tag.titles.get(locale);
+				tagJson.addProperty("title", title != null ? title : tag.title);
+				tagsJson.add(tagJson);
+			}
+			categoriesJson.add(category.getKey(), tagsJson);
+		}
+		JsonObject json = new JsonObject();
+		json.addProperty("locale", locale);
+		json.add("categories", categoriesJson);
+
+		try {
+			export = new TaxonomyExport(json.toString().getBytes(StandardCharsets.UTF_8));
+			exports.put(locale, export);
+			return export;
+		} catch (IOException e) {
+			LOG.error("Error compressing taxonomy export for locale {}", locale, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Reads all tag categories.
+	 *
+	 * @return {@code true} if the tags could be read.
+	 */
+	private boolean load() {
+		try (ResourceResolver resolver = resourceResolverFactory
+				.getServiceResourceResolver(TagSynchScheduler.AUTH_INFO)) {
+			Resource exlTags = resolver.getResource(TagIdCodec.EXL_TAG_PATH);
+			if (exlTags == null) {
+				return false;
+			}
+			Map<String, List<TagEntry>> categories = new TreeMap<>();
+			for (Resource categoryResource : exlTags.getChildren()) {
+				categories.put(categoryResource.getName(), readCategory(categoryResource));
+			}
+			tagsByCategory = categories;
+			staleCategories.clear();
+			locales = collectLocales();
+			return true;
+		} catch (LoginException e) {
+			LOG.error("Error reading exl tags for taxonomy export", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the categories changed since they were last read.
+	 *
+	 * @return {@code true} if the tags could be read.
+	 */
+	private boolean refresh() {
+		try (ResourceResolver resolver = resourceResolverFactory
+				.getServiceResourceResolver(TagSynchScheduler.AUTH_INFO)) {
+			for (String category : staleCategories) {
+				Resource categoryResource = resolver.getResource(TagIdCodec.EXL_TAG_PATH + "/" + category);
+				if (categoryResource != null) {
+					tagsByCategory.put(category, readCategory(categoryResource));
+				} else {
+					tagsByCategory.remove(category);
+				}
+			}
+			LOG.info("Taxonomy export refreshed for categories: {}", staleCategories);
+			staleCategories.clear();
+			locales = collectLocales();
+			return true;
+		} catch (LoginException e) {
+			LOG.error("Error refreshing taxonomy export, rebuilding on next request", e);
+			tagsByCategory = null;
+			staleCategories.clear();
+			return false;
+		}
+	}
+
+	private List<TagEntry> readCategory(Resource categoryResource) {
+		List<TagEntry> tags = new ArrayList<>();
+		collectTags(categoryResource, tags);
+		return tags;
+	}
+
+	private void collectTags(Resource parent, List<TagEntry> tags) {
+		for (Resource child : parent.getChildren()) {
+			ValueMap properties = child.getValueMap();
+			if (!TAG_NODE_TYPE.equals(properties.get("jcr:primaryType", String.class))) {
+				continue;
+			}
+			String title = properties.get(TITLE, String.class);
+			// untitled nodes are intermediate nodes created by the tag manager
+			if (title != null) {
+				Map<String, String> titles = new HashMap<>();
+				for (Map.Entry<String, Object> property : properties.entrySet()) {
+					if (property.getKey().startsWith(LOCALIZED_TITLE_PREFIX)) {
+						titles.put(property.getKey().substring(LOCALIZED_TITLE_PREFIX.length()),
+								String.valueOf(property.getValue()));
+					}
+				}
+				String tagId = TagIdCodec.TAG_NAMESPACE + child.getPath().substring(TagIdCodec.EXL_TAG_PATH.length() + 1);
+				tags.add(new TagEntry(tagId, title, titles));
+			}
+			collectTags(child, tags);
+		}
+	}
+
+	private Set<String> collectLocales() {
+		Set<String> tagLocales = new TreeSet<>();
+		for (List<TagEntry> tags : tagsByCategory.values()) {
+			for (TagEntry tag : tags) {
+				tagLocales.addAll(tag.titles.keySet());
+			}
+		}
+		return tagLocales;
+	}
+
+	private static final class TagEntry {
+
+		private final String id;
+
+		private final String title;
+
+		private final Map<String, String> titles;
+
+		private TagEntry(String id, String title, Map<String, String> titles) {
+			this.id = id;
+			this.title = title;
+			this.titles = titles.isEmpty() ? Collections.<String, String>emptyMap() : titles;
+		}
+	}
+
+	/**
+	 * A rendered taxonomy export, with its gzip variant and a strong ETag per
+	 * variant.
+	 */
+	public static final class TaxonomyExport {
+
+		private final byte[] json;
+
+		private final byte[] gzip;
+
+		private final String etag;
+
+		private final String gzipEtag;
+
+		private TaxonomyExport(byte[] json) throws IOException {
+			this.json = json;
+			ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+			try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+				gzipOut.write(json);
+			}
+			this.gzip = out.toByteArray();
+			String hash = DigestUtils.sha256Hex(json);
+			this.etag = "\"" + hash + "\"";
+			// a strong ETag identifies the exact bytes, so the gzip body needs its own
+			this.gzipEtag = "\"" + hash + "-gz\"";
+		}
+
+		public byte[] getJson() {
+			return json;
+		}
+
+		public byte[] getGzip() {
+			return gzip;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+
+		public String getGzipEtag() {
+			return gzipEtag;
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package com.exlm.core.service;
+
+import org.apache.sling.commons.metrics.MetricsService;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the automatic translation pipeline, from the replication event to
+ * the started translation workflow. Metrics are registered with the Sling
+ * MetricsService, which exposes them over JMX and in the Sling Metrics console.
+ */
+@Component(service = TranslationPipelineMetrics.class, immediate = true)
+public class TranslationPipelineMetrics {
+
+	private static final String PREFIX = "exlm.translation.";
+
+	@Reference
+	private MetricsService metricsService;
+
+	/**
+	 * Records a replication event received by the translation listener.
+	 *
+	 * @param pathCount The number of paths in the event.
+	 */
+	public void recordEventReceived(int pathCount) {
+		metricsService.meter(PREFIX + "events.received").mark();
+		metricsService.histogram(PREFIX + "events.paths").update(pathCount);
+	}
+
+	/**
+	 * Records a replication event that did not lead to translation.
+	 */
+	public void recordEventFiltered() {
+		metricsService.meter(PREFIX + "events.filtered").mark();
+	}
+
+	/**
+	 * Records paths excluded from translation by the routing rules.
+	 *
+	 * @param pathCount The number of excluded paths.
+	 */
+	public void recordPathsExcluded(int pathCount) {
+		metricsService.counter(PREFIX + "paths.excluded").increment(pathCount);
+	}
+
+	/**
+	 * Records (path, language) pairs skipped because a workflow is in flight.
+	 *
+	 * @param pairCount The number of skipped pairs.
+	 */
+	public void recordDuplicatesSuppressed(int pairCount) {
+		metricsService.counter(PREFIX + "duplicates.suppressed").increment(pairCount);
+	}
+
+	/**
+	 * Records the time spent checking whether language copies exist.
+	 *
+	 * @param durationNanos The duration in nanoseconds.
+	 */
+	public void recordLanguageCopyCheck(long durationNanos) {
+		metricsService.timer(PREFIX + "languagecopy.check").update(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Records a started translation workflow.
+	 *
+	 * @param workflowModelPath The path of the workflow model.
+	 * @param durationNanos     The time the workflow start took in nanoseconds.
+	 */
+	public void recordWorkflowStarted(String workflowModelPath, long durationNanos) {
+		String model = getModelName(workflowModelPath);
+		metricsService.meter(PREFIX + "workflows.started." + model).mark();
+		metricsService.timer(PREFIX + "workflows.start." + model).update(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Records a translation workflow that failed to start.
+	 *
+	 * @param workflowModelPath The path of the workflow model.
+	 */
+	public void recordWorkflowFailed(String workflowModelPath) {
+		metricsService.meter(PREFIX + "workflows.failed." + getModelName(workflowModelPath)).mark();
+	}
+
+	/**
+	 * Records a translation request added to the queue.
+	 */
+	public void recordQueued() {
+		metricsService.counter(PREFIX + "queue.depth").increment();
+	}
+
+	/**
+	 * Records a translation request taken from the queue.
+	 *
+	 * @param waitNanos The time the request waited in the queue in nanoseconds.
+	 */
+	public void recordDequeued(long waitNanos) {
+		metricsService.counter(PREFIX + "queue.depth").decrement();
+		metricsService.timer(PREFIX + "queue.wait").update(waitNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Records translation requests removed from the queue without being started,
+	 * e.g. persisted requests left behind when the queue stops.
+	 *
+	 * @param requestCount The number of requests.
+	 */
+	public void recordUnloaded(int requestCount) {
+		metricsService.counter(PREFIX + "queue.depth").decrement(requestCount);
+	}
+
+	/**
+	 * Records the latency from queueing a translation request to having started
+	 * all its translation workflows.
+	 *
+	 * @param durationNanos The duration in nanoseconds.
+	 */
+	public void recordPipelineLatency(long durationNanos) {
+		metricsService.timer(PREFIX + "pipeline.latency").update(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private static String getModelName(String workflowModelPath) {
+		return workflowModelPath.substring(workflowModelPath.lastIndexOf('/') + 1);
+	}
+}
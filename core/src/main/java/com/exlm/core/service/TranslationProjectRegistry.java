@@ -0,0 +1,277 @@
+package com.exlm.core.service;
+
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.ValueMap;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.AttributeType;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.IsoFields;
+import java.util.Collections;
+
+/**
+ * Repository-backed registry of the translation projects used by the automatic
+ * translation workflows. Projects are rotated per time window and once they
+ * hold a configured number of jobs, so a single project does not grow without
+ * limit. A job is only counted once its workflow started; until then it holds
+ * a reservation that is released if the workflow fails to start.
+ */
+@Component(service = TranslationProjectRegistry.class, immediate = true)
+@Designate(ocd = TranslationProjectRegistry.Config.class)
+public class TranslationProjectRegistry {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TranslationProjectRegistry.class);
+
+	public static final String PROJECT_FOLDER_PATH = "/content/projects/exlm_auto_translation";
+	private static final String PROJECT_TITLE = "EXLM Translation Project";
+	private static final String REGISTRY_PATH = "/var/exlm/translation-projects";
+
+	private static final String PN_WINDOW = "window";
+	private static final String PN_SEQUENCE = "sequence";
+	private static final String PN_JOB_COUNT = "jobCount";
+	private static final String PN_PROJECT_TITLE = "projectTitle";
+	private static final String PN_PROJECT_PATH = "projectPath";
+
+	private static final String WINDOW_MONTHLY = "monthly";
+	private static final String WINDOW_WEEKLY = "weekly";
+	private static final String WINDOW_DAILY = "daily";
+
+	private String rotationWindow;
+
+	private int maxJobsPerProject;
+
+	private ActiveProject activeProject;
+
+	@ObjectClassDefinition(name = "Automatic Translation Project Registry")
+	public @interface Config {
+		@AttributeDefinition(name = "Rotation Window", description = "Start a new translation project per window - monthly/weekly/daily/none", type = AttributeType.STRING)
+		String rotationWindow() default WINDOW_MONTHLY;
+
+		@AttributeDefinition(name = "Max Jobs Per Project", description = "Start a new translation project once the active one holds this many jobs - 0 disables", type = AttributeType.INTEGER)
+		int maxJobsPerProject() default 500;
+	}
+
+	@Activate
+	@Modified
+	protected synchronized void activate(Config config) {
+		rotationWindow = config.rotationWindow();
+		maxJobsPerProject = config.maxJobsPerProject();
+		// reloaded from the repository on next use
+		activeProject = null;
+	}
+
+	/**
+	 * Resolves the translation project the next job should be added to and
+	 * reserves a job slot in it. The reservation must be completed with
+	 * {@link #recordJob} once the workflow started, or released with
+	 * {@link #releaseProject} if it did not.
+	 *
+	 * @param resolver The ResourceResolver used to read the registry and check
+	 *                 whether the project exists.
+	 * @return The translation project for the job.
+	 */
+	public synchronized TranslationProject acquireProject(ResourceResolver resolver) {
+		if (activeProject == null) {
+			activeProject = load(resolver);
+		}
+		String window = currentWindow();
+		if (activeProject == null || !window.equals(activeProject.window)) {
+			activeProject = new ActiveProject(window, 1, 0);
+		} else if (maxJobsPerProject > 0
+				&& activeProject.jobCount + activeProject.reservedJobs >= maxJobsPerProject) {
+			activeProject = new ActiveProject(window, activeProject.sequence + 1, 0);
+		}
+		activeProject.reservedJobs++;
+
+		String projectPath = activeProject.getProjectPath();
+		// a project is only new while it does not exist, whatever happened to earlier jobs
+		boolean isNew = resolver.getResource(projectPath) == null;
+		if (isNew && activeProject.jobCount > 0) {
+			LOG.info("Translation project {} has {} jobs but does not exist yet, creating it", projectPath,
+					activeProject.jobCount);
+		}
+		return new TranslationProject(activeProject, activeProject.getProjectTitle(), projectPath, isNew);
+	}
+
+	/**
+	 * Counts the job of a started workflow against its project.
+	 *
+	 * @param resolver The ResourceResolver used to persist the registry.
+	 * @param project  The project returned by {@link #acquireProject}.
+	 * @throws PersistenceException If the registry can not be persisted.
+	 */
+	public synchronized void recordJob(ResourceResolver resolver, TranslationProject project)
+			throws PersistenceException {
+		ActiveProject reserved = project.activeProject;
+		reserved.reservedJobs--;
+		reserved.jobCount++;
+		if (reserved != activeProject) {
+			// the registry rotated to another project meanwhile
+			return;
+		}
+		try {
+			persist(resolver, reserved);
+		} catch (PersistenceException e) {
+			// another cluster node updated the registry concurrently, reload and retry once
+			LOG.warn("Conflict while updating translation project registry, retrying: {}", e.getMessage());
+			resolver.revert();
+			resolver.refresh();
+			ActiveProject stored = load(resolver);
+			if (stored != null && stored.window.equals(reserved.window) && stored.sequence == reserved.sequence) {
+				reserved.jobCount = Math.max(reserved.jobCount, stored.jobCount + 1);
+				persist(resolver, reserved);
+			} else if (stored != null) {
+				// another node rotated the project, continue with its project
+				activeProject = stored;
+			}
+		}
+	}
+
+	/**
+	 * Releases the reservation of a job whose workflow did not start.
+	 *
+	 * @param project The project returned by {@link #acquireProject}.
+	 */
+	public synchronized void releaseProject(TranslationProject project) {
+		project.activeProject.reservedJobs--;
+	}
+
+	/**
+	 * Loads the active project from the registry node.
+	 *
+	 * @param resolver The ResourceResolver to read the registry with.
+	 * @return The active project, or {@code null} if none has been registered yet.
+	 */
+	private ActiveProject load(ResourceResolver resolver) {
+		Resource registry = resolver.getResource(REGISTRY_PATH);
+		if (registry == null) {
+			return null;
+		}
+		ValueMap properties = registry.getValueMap();
+		String window = properties.get(PN_WINDOW, String.class);
+		if (window == null) {
+			return null;
+		}
+		return new ActiveProject(window, properties.get(PN_SEQUENCE, 1), properties.get(PN_JOB_COUNT, 0));
+	}
+
+	/**
+	 * Persists the active project to the registry node.
+	 *
+	 * @param resolver The ResourceResolver to write the registry with.
+	 * @param project  The active project.
+	 * @throws PersistenceException If the registry can not be committed.
+	 */
+	private void persist(ResourceResolver resolver, ActiveProject project) throws PersistenceException {
+		Resource registry = ResourceUtil.getOrCreateResource(resolver, REGISTRY_PATH,
+				Collections.<String, Object>singletonMap("jcr:primaryType", "nt:unstructured"), "sling:Folder", false);
+		ModifiableValueMap mvm = registry.adaptTo(ModifiableValueMap.class);
+		mvm.put(PN_WINDOW, project.window);
+		mvm.put(PN_SEQUENCE, project.sequence);
+		mvm.put(PN_JOB_COUNT, project.jobCount);
+		mvm.put(PN_PROJECT_TITLE, project.getProjectTitle());
+		mvm.put(PN_PROJECT_PATH, project.getProjectPath());
+		resolver.commit();
+	}
+
+	/**
+	 * Returns the key of the current rotation window.
+	 *
+	 * @return The window key, empty if projects are not rotated by time.
+	 */
+	private String currentWindow() {
+		LocalDate today = LocalDate.now(ZoneOffset.UTC);
+		if (WINDOW_MONTHLY.equalsIgnoreCase(rotationWindow)) {
+			return today.format(DateTimeFormatter.ofPattern("yyyy-MM"));
+		} else if (WINDOW_WEEKLY.equalsIgnoreCase(rotationWindow)) {
+			return String.format("%d-W%02d", today.get(IsoFields.WEEK_BASED_YEAR),
+					today.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+		} else if (WINDOW_DAILY.equalsIgnoreCase(rotationWindow)) {
+			return today.format(DateTimeFormatter.ISO_LOCAL_DATE);
+		}
+		return "";
+	}
+
+	/**
+	 * The project currently receiving translation jobs.
+	 */
+	private static final class ActiveProject {
+
+		private final String window;
+
+		private final int sequence;
+
+		private int jobCount;
+
+		/** Jobs acquired but not started yet. */
+		private int reservedJobs;
+
+		private ActiveProject(String window, int sequence, int jobCount) {
+			this.window = window;
+			this.sequence = sequence;
+			this.jobCount = jobCount;
+		}
+
+		private String getProjectTitle() {
+			StringBuilder title = new StringBuilder(PROJECT_TITLE);
+			if (!window.isEmpty()) {
+				title.append(' ').append(window);
+			}
+			if (sequence > 1) {
+				title.append(' ').append(sequence);
+			}
+			return title.toString();
+		}
+
+		private String getProjectPath() {
+			return PROJECT_FOLDER_PATH + "/" + getProjectTitle().toLowerCase().replaceAll(" ", "_");
+		}
+	}
+
+	/**
+	 * A translation project resolved for a workflow.
+	 */
+	public static final class TranslationProject {
+
+		private final ActiveProject activeProject;
+
+		private final String projectTitle;
+
+		private final String projectPath;
+
+		private final boolean isNew;
+
+		private TranslationProject(ActiveProject activeProject, String projectTitle, String projectPath,
+				boolean isNew) {
+			this.activeProject = activeProject;
+			this.projectTitle = projectTitle;
+			this.projectPath = projectPath;
+			this.isNew = isNew;
+		}
+
+		public String getProjectTitle() {
+			return projectTitle;
+		}
+
+		public String getProjectPath() {
+			return projectPath;
+		}
+
+		public boolean isNew() {
+			return isNew;
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package com.exlm.core.service;
 
+import org.apache.commons.lang3.StringUtils;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Component;
@@ -7,17 +8,31 @@ import org.osgi.service.metatype.annotations.Designate;
 import org.osgi.service.metatype.annotations.AttributeDefinition;
 import org.osgi.service.metatype.annotations.AttributeType;
 import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exlm.core.utils.PathPrefixTrie;
 
 @Component(service = TranslationWorkflowConfig.class, immediate = true)
 @Designate(ocd = TranslationWorkflowConfig.Config.class)
 public class TranslationWorkflowConfig {
 
+	private static final Logger LOG = LoggerFactory.getLogger(TranslationWorkflowConfig.class);
+
 	private static final String DEFAULT_ENVIRONMENT_TYPE = "non-prod";
 
+	private static final String RULE_SEPARATOR = "\\|";
+
 	private String environmentType;
 
 	private String[] destinationLanguages;
 
+	private volatile PathPrefixTrie<RoutingRule> routingRules = new PathPrefixTrie<>();
+
+	private int packagePayloadThreshold;
+
+	private int inFlightTimeout;
+
 	@ObjectClassDefinition(name = "Automatic Translation Configuration")
 	public @interface Config {
 		@AttributeDefinition(name = "Environment Type", description = "Should be non-prod/prod - default is non-prod", type = AttributeType.STRING)
@@ -26,6 +41,19 @@ public class TranslationWorkflowConfig {
 		@AttributeDefinition(name = "Destination Languages", description = "Destination language(s) for translation", type = AttributeType.STRING)
 		String[] destinationLanguages() default { "de", "es", "fr", "it", "ja", "ko", "nl", "pt-BR", "sv", "zh-TW",
 				"zh-CN", "ar" };
+
+		@AttributeDefinition(name = "Routing Rules", description = "Destination languages per path prefix, as pathPrefix|languages|priority "
+				+ "e.g. /content/exlm/global/en/archive|de,fr,ja|10. Leave languages empty to exclude the path. "
+				+ "The highest priority wins, then the longest prefix; unmatched paths use the destination languages", type = AttributeType.STRING)
+		String[] routingRules() default {};
+
+		@AttributeDefinition(name = "Package Payload Threshold", description = "Batches with more content paths are passed to the translation "
+				+ "workflow as a workflow package instead of a comma separated payload; update workflows are never packaged. 0 disables workflow packages", type = AttributeType.INTEGER)
+		int packagePayloadThreshold() default 0;
+
+		@AttributeDefinition(name = "In-flight Timeout", description = "Hours after which a running translation workflow no longer blocks "
+				+ "new requests for its paths or counts against the concurrency cap", type = AttributeType.INTEGER)
+		int inFlightTimeout() default 24;
 	}
 
 	@Activate
@@ -33,6 +61,9 @@ public class TranslationWorkflowConfig {
 	protected void activate(Config config) {
 		environmentType = config.environment_type();
 		destinationLanguages = config.destinationLanguages();
+		routingRules = compileRoutingRules(config.routingRules());
+		packagePayloadThreshold = Math.max(0, config.packagePayloadThreshold());
+		inFlightTimeout = Math.max(1, config.inFlightTimeout());
 	}
 
 	public String getEnvironmentType() {
@@ -42,4 +73,85 @@ public class TranslationWorkflowConfig {
 	public String[] getDestinationLanguages() {
 		return destinationLanguages;
 	}
+
+	public int getPackagePayloadThreshold() {
+		return packagePayloadThreshold;
+	}
+
+	public int getInFlightTimeout() {
+		return inFlightTimeout;
+	}
+
+	/**
+	 * Returns the destination languages for the given content path, based on the
+	 * routing rules.
+	 *
+	 * @param path The content path.
+	 * @return The destination languages, empty if the path is excluded.
+	 */
+	public String[] getDestinationLanguages(String path) {
+		PathPrefixTrie<RoutingRule> rules = routingRules;
+		if (rules.isEmpty()) {
+			return destinationLanguages;
+		}
+		RoutingRule selected = null;
+		for (RoutingRule rule : rules.match(path)) {
+			// matches are ordered by prefix length, so >= prefers the longer prefix on ties
+			if (selected == null || rule.priority >= selected.priority) {
+				selected = rule;
+			}
+		}
+		return selected != null ? selected.languages : destinationLanguages;
+	}
+
+	/**
+	 * Compiles the configured routing rules into a path prefix trie.
+	 *
+	 * @param rules The configured rules.
+	 * @return The compiled rules.
+	 */
+	private static PathPrefixTrie<RoutingRule> compileRoutingRules(String[] rules) {
+		PathPrefixTrie<RoutingRule> trie = new PathPrefixTrie<>();
+		if (rules == null) {
+			return trie;
+		}
+		for (String rule : rules) {
+			if (StringUtils.isBlank(rule)) {
+				continue;
+			}
+			String[] values = rule.split(RULE_SEPARATOR, -1);
+			String prefix = values[0].trim();
+			if (!prefix.startsWith("/")) {
+				LOG.warn("Ignoring translation routing rule with invalid path prefix: {}", rule);
+				continue;
+			}
+			String[] languages = values.length > 1 ? StringUtils.split(values[1].replace(" ", ""), ",")
+					: new String[0];
+			int priority = 0;
+			if (values.length > 2 && StringUtils.isNotBlank(values[2])) {
+				try {
+					priority = Integer.parseInt(values[2].trim());
+				} catch (NumberFormatException e) {
+					LOG.warn("Ignoring invalid priority in translation routing rule: {}", rule);
+				}
+			}
+			trie.put(prefix, new RoutingRule(languages, priority));
+		}
+		return trie;
+	}
+
+	/**
+	 * A compiled routing rule.
+	 */
+	private static final class RoutingRule {
+
+		private final String[] languages;
+
+		private final int priority;
+
+		private RoutingRule(String[] languages, int priority) {
+			this.languages = languages;
+			this.priority = priority;
+		}
+	}
 }
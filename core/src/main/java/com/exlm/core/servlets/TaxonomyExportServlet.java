@@ -0,0 +1,124 @@
+package com.exlm.core.servlets;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.HttpConstants;
+import org.apache.sling.api.servlets.ServletResolverConstants;
+import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import com.exlm.core.service.TaxonomyExportCache;
+import com.exlm.core.service.TaxonomyExportCache.TaxonomyExport;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the precomputed exl taxonomy export of a locale, e.g.
+ * /bin/exlm/taxonomy.de.json, with a strong ETag per content encoding and CDN
+ * cache headers.
+ */
+@Component(service = Servlet.class, property = {
+		ServletResolverConstants.SLING_SERVLET_PATHS + "=/bin/exlm/taxonomy",
+		ServletResolverConstants.SLING_SERVLET_EXTENSIONS + "=json",
+		ServletResolverConstants.SLING_SERVLET_METHODS + "=" + HttpConstants.METHOD_GET })
+public class TaxonomyExportServlet extends SlingSafeMethodsServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String CACHE_CONTROL = "public, max-age=300, s-maxage=3600, stale-while-revalidate=86400";
+	private static final String GZIP = "gzip";
+
+	@Reference
+	private transient TaxonomyExportCache taxonomyExportCache;
+
+	@Override
+	protected void doGet(SlingHttpServletRequest request, SlingHttpServletResponse response) throws IOException {
+		String locale = StringUtils.defaultIfBlank(request.getRequestPathInfo().getSelectorString(),
+				TaxonomyExportCache.DEFAULT_LOCALE);
+		TaxonomyExport export = taxonomyExportCache.getExport(locale);
+		if (export == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		boolean gzip = acceptsGzip(request.getHeader("Accept-Encoding"));
+		String etag = gzip ? export.getGzipEtag() : export.getEtag();
+		response.setHeader("ETag", etag);
+		response.setHeader("Cache-Control", CACHE_CONTROL);
+		response.setHeader("Vary", "Accept-Encoding");
+		if (matchesEtag(request.getHeader("If-None-Match"), etag)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		response.setContentType("application/json");
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		byte[] body = export.getJson();
+		if (gzip) {
+			response.setHeader("Content-Encoding", GZIP);
+			body = export.getGzip();
+		}
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+
+	/**
+	 * Checks whether the Accept-Encoding header allows a gzip body. Codings are
+	 * matched by name; a q-value of 0 refuses a coding, and "*" covers gzip
+	 * unless gzip is listed itself.
+	 *
+	 * @param acceptEncoding The Accept-Encoding header, may be null.
+	 * @return {@code true} if the gzip body can be sent.
+	 */
+	private static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		Boolean wildcard = null;
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parameters = coding.split(";");
+			String name = parameters[0].trim();
+			boolean accepted = getQuality(parameters) > 0;
+			if (GZIP.equalsIgnoreCase(name)) {
+				return accepted;
+			}
+			if ("*".equals(name)) {
+				wildcard = accepted;
+			}
+		}
+		return Boolean.TRUE.equals(wildcard);
+	}
+
+	private static double getQuality(String[] parameters) {
+		for (int i = 1; i < parameters.length; i++) {
+			String parameter = parameters[i].trim();
+			if (parameter.length() > 2 && (parameter.startsWith("q=") || parameter.startsWith("Q="))) {
+				try {
+					return Double.parseDouble(parameter.substring(2).trim());
+				} catch (NumberFormatException e) {
+					// an invalid q-value refuses the coding
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+
+	private static boolean matchesEtag(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String candidate : ifNoneMatch.split(",")) {
+			String value = candidate.trim();
+			if ("*".equals(value) || etag.equals(value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,77 @@
+package com.exlm.core.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable-after-build trie of JCR path prefixes. Prefixes match on whole path
+ * segments, so "/content/a" matches "/content/a" and "/content/a/b" but not
+ * "/content/ab". Lookups cost one map access per path segment, independent of
+ * the number of prefixes.
+ *
+ * @param <T> The type of value attached to a prefix.
+ */
+public class PathPrefixTrie<T> {
+
+	private static final String PATH_SEPARATOR = "/";
+
+	private final Node<T> root = new Node<>();
+
+	/**
+	 * Attaches a value to the given path prefix.
+	 *
+	 * @param prefix The path prefix.
+	 * @param value  The value.
+	 */
+	public void put(String prefix, T value) {
+		Node<T> node = root;
+		for (String segment : prefix.split(PATH_SEPARATOR)) {
+			if (!segment.isEmpty()) {
+				node = node.children.computeIfAbsent(segment, s -> new Node<>());
+			}
+		}
+		node.values.add(value);
+	}
+
+	/**
+	 * Collects the values of all prefixes matching the given path.
+	 *
+	 * @param path The path to match.
+	 * @return The matching values, ordered from the shortest to the longest
+	 *         prefix.
+	 */
+	public List<T> match(String path) {
+		List<T> matches = new ArrayList<>(root.values);
+		Node<T> node = root;
+		for (String segment : path.split(PATH_SEPARATOR)) {
+			if (segment.isEmpty()) {
+				continue;
+			}
+			node = node.children.get(segment);
+			if (node == null) {
+				break;
+			}
+			matches.addAll(node.values);
+		}
+		return matches.isEmpty() ? Collections.<T>emptyList() : matches;
+	}
+
+	/**
+	 * Returns whether the trie holds no prefixes.
+	 *
+	 * @return {@code true} if no prefix was added.
+	 */
+	public boolean isEmpty() {
+		return root.values.isEmpty() && root.children.isEmpty();
+	}
+
+	private static final class Node<T> {
+
+		private final Map<String, Node<T>> children = new HashMap<>();
+
+		private final List<T> values = new ArrayList<>(1);
+	}
+}
@@ -0,0 +1,163 @@
+package com.exlm.core.workflows;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe index of the (content path, language) pairs that currently have a
+ * translation workflow in flight. Pairs are first reserved by a trigger call and
+ * then bound to the workflow that was started for them, until the workflow
+ * completes or is aborted, or is found stale by a reconciliation.
+ */
+public class InFlightTranslationIndex {
+
+	private static final String RESERVATION_PREFIX = "reservation-";
+
+	private static final char KEY_SEPARATOR = '|';
+
+	private final ConcurrentMap<String, String> ownerByKey = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, Set<String>> keysByOwner = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, Long> boundAtByWorkflow = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates an owner id for a new reservation.
+	 *
+	 * @return The reservation id.
+	 */
+	public String newReservation() {
+		return RESERVATION_PREFIX + UUID.randomUUID();
+	}
+
+	/**
+	 * Reserves the given paths for the language, skipping the ones already in
+	 * flight for another owner.
+	 *
+	 * @param reservationId The reservation id.
+	 * @param paths         The content paths to reserve.
+	 * @param language      The destination language.
+	 * @return The paths that were reserved, in the given order.
+	 */
+	public List<String> reserve(String reservationId, List<String> paths, String language) {
+		List<String> reserved = new ArrayList<>();
+		for (String path : paths) {
+			String key = key(path, language);
+			String owner = ownerByKey.putIfAbsent(key, reservationId);
+			if (owner == null || owner.equals(reservationId)) {
+				ownedKeys(reservationId).add(key);
+				reserved.add(path);
+			}
+		}
+		return reserved;
+	}
+
+	/**
+	 * Binds the (path, language) pairs to a started workflow.
+	 *
+	 * @param workflowId The workflow instance id.
+	 * @param paths      The content paths of the workflow.
+	 * @param languages  The destination languages of the workflow.
+	 */
+	public void bind(String workflowId, Collection<String> paths, Collection<String> languages) {
+		bind(workflowId, paths, languages, System.currentTimeMillis());
+	}
+
+	/**
+	 * Binds the (path, language) pairs to a workflow started at the given time.
+	 *
+	 * @param workflowId The workflow instance id.
+	 * @param paths      The content paths of the workflow.
+	 * @param languages  The destination languages of the workflow.
+	 * @param startedAt  The start time of the workflow in milliseconds.
+	 */
+	public void bind(String workflowId, Collection<String> paths, Collection<String> languages, long startedAt) {
+		boundAtByWorkflow.putIfAbsent(workflowId, startedAt);
+		Set<String> workflowKeys = ownedKeys(workflowId);
+		for (String language : languages) {
+			for (String path : paths) {
+				String key = key(path, language);
+				String previousOwner = ownerByKey.put(key, workflowId);
+				if (previousOwner != null && !previousOwner.equals(workflowId)) {
+					Set<String> previousKeys = keysByOwner.get(previousOwner);
+					if (previousKeys != null) {
+						previousKeys.remove(key);
+					}
+				}
+				workflowKeys.add(key);
+			}
+		}
+	}
+
+	/**
+	 * Releases all pairs held by the given reservation or workflow.
+	 *
+	 * @param ownerId The reservation or workflow instance id.
+	 */
+	public void release(String ownerId) {
+		boundAtByWorkflow.remove(ownerId);
+		Set<String> keys = keysByOwner.remove(ownerId);
+		if (keys != null) {
+			for (String key : keys) {
+				ownerByKey.remove(key, ownerId);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of workflows holding pairs in the index.
+	 *
+	 * @return The number of in-flight workflows.
+	 */
+	public int getWorkflowCount() {
+		int count = 0;
+		for (String owner : keysByOwner.keySet()) {
+			if (!owner.startsWith(RESERVATION_PREFIX)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the workflows holding pairs in the index with their start time.
+	 *
+	 * @return The start time in milliseconds keyed by workflow instance id.
+	 */
+	public Map<String, Long> getWorkflows() {
+		return new HashMap<>(boundAtByWorkflow);
+	}
+
+	/**
+	 * Returns the number of (path, language) pairs in flight.
+	 *
+	 * @return The number of pairs.
+	 */
+	public int size() {
+		return ownerByKey.size();
+	}
+
+	/**
+	 * Removes all entries from the index.
+	 */
+	public void clear() {
+		ownerByKey.clear();
+		keysByOwner.clear();
+		boundAtByWorkflow.clear();
+	}
+
+	private Set<String> ownedKeys(String ownerId) {
+		return keysByOwner.computeIfAbsent(ownerId, id -> ConcurrentHashMap.newKeySet());
+	}
+
+	private static String key(String path, String language) {
+		return path + KEY_SEPARATOR + language;
+	}
+}
@@ -0,0 +1,520 @@
+package com.exlm.core.workflows;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.settings.SlingSettingsService;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.AttributeType;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exlm.core.service.TranslationPipelineMetrics;
+import com.exlm.core.utils.PathPrefixTrie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Priority queue in front of {@link TranslationWorkflowTrigger}. Requests are
+ * started by a single dispatcher thread in priority order, and only while fewer
+ * than the configured number of translation workflows are in flight. Queued
+ * requests are persisted under {@link #QUEUE_PATH} until they are started, so
+ * they survive restarts and deployments. A request node is claimed by the
+ * instance starting it and removed once all its workflows are started.
+ */
+@Component(service = TranslationWorkflowQueue.class, immediate = true)
+@Designate(ocd = TranslationWorkflowQueue.Config.class)
+public class TranslationWorkflowQueue {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TranslationWorkflowQueue.class);
+
+	private static final String RULE_SEPARATOR = "\\|";
+
+	private static final String JCR_CONTENT = "/jcr:content";
+
+	private static final long SLOT_POLL_MILLIS = 5000;
+
+	private static final long SHUTDOWN_WAIT_SECONDS = 30;
+
+	private static final int MAX_START_ATTEMPTS = 3;
+
+	public static final String QUEUE_PATH = "/var/exlm/translation-queue";
+
+	private static final String PN_CONTENT_PATHS = "contentPaths";
+	private static final String PN_SOURCE_LANGUAGE = "sourceLanguage";
+	private static final String PN_DESTINATION_LANGUAGES = "destinationLanguages";
+	private static final String PN_PRIORITY = "priority";
+	private static final String PN_QUEUED = "queued";
+	private static final String PN_CLAIMED_BY = "claimedBy";
+	private static final String PN_CLAIMED = "claimed";
+
+	@Reference
+	private TranslationWorkflowTrigger workflowTrigger;
+
+	@Reference
+	private ResourceResolverFactory resourceResolverFactory;
+
+	@Reference
+	private TranslationPipelineMetrics metrics;
+
+	@Reference
+	private SlingSettingsService slingSettings;
+
+	@ObjectClassDefinition(name = "Automatic Translation Queue Configuration")
+	public @interface Config {
+		@AttributeDefinition(name = "Max Concurrent Workflows", description = "Maximum number of translation workflows in flight", type = AttributeType.INTEGER)
+		int maxConcurrentWorkflows() default 10;
+
+		@AttributeDefinition(name = "Priority Rules", description = "Priority per path prefix, as pathPrefix|priority "
+				+ "e.g. /content/exlm/global/en/landing|100. The longest prefix wins, higher priorities are started first", type = AttributeType.STRING)
+		String[] priorityRules() default {};
+
+		@AttributeDefinition(name = "Priority Property", description = "Page property overriding the path priority", type = AttributeType.STRING)
+		String priorityProperty() default "translationPriority";
+	}
+
+	private final PriorityBlockingQueue<TranslationRequest> queue = new PriorityBlockingQueue<>();
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final Object slotMonitor = new Object();
+
+	private volatile int maxConcurrentWorkflows;
+
+	private volatile PathPrefixTrie<Integer> priorityRules = new PathPrefixTrie<>();
+
+	private volatile String priorityProperty;
+
+	private volatile boolean running;
+
+	private ExecutorService dispatcher;
+
+	@Activate
+	protected void activate(Config config) {
+		modified(config);
+		loadPendingRequests();
+		running = true;
+		dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "exlm-translation-dispatcher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		dispatcher.submit(this::dispatch);
+	}
+
+	@Modified
+	protected void modified(Config config) {
+		maxConcurrentWorkflows = Math.max(1, config.maxConcurrentWorkflows());
+		priorityRules = compilePriorityRules(config.priorityRules());
+		priorityProperty = config.priorityProperty();
+		workflowFinished();
+	}
+
+	@Deactivate
+	protected void deactivate() {
+		running = false;
+		dispatcher.shutdownNow();
+		try {
+			dispatcher.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		int pending = queue.size();
+		queue.clear();
+		if (pending > 0) {
+			metrics.recordUnloaded(pending);
+			LOG.info("Translation queue stopped, {} pending requests are resumed on the next activation", pending);
+		}
+	}
+
+	/**
+	 * Queues a translation request. The priority is the highest priority of its
+	 * content paths.
+	 *
+	 * @param contentPaths         The paths of the content to be translated.
+	 * @param sourceLanguage       The source language of the content.
+	 * @param destinationLanguages The destination languages for translation.
+	 */
+	public void enqueue(List<String> contentPaths, String sourceLanguage, String[] destinationLanguages) {
+		int priority = getPriority(contentPaths);
+		String nodePath = persist(contentPaths, sourceLanguage, destinationLanguages, priority);
+		queue.add(new TranslationRequest(contentPaths, sourceLanguage, destinationLanguages, priority,
+				sequence.incrementAndGet(), nodePath));
+		metrics.recordQueued();
+		LOG.info("Queued translation request with priority {} for content paths: {}", priority, contentPaths);
+	}
+
+	/**
+	 * Signals that a translation workflow finished, so the dispatcher can start
+	 * the next request.
+	 */
+	public void workflowFinished() {
+		synchronized (slotMonitor) {
+			slotMonitor.notifyAll();
+		}
+	}
+
+	/**
+	 * Dispatcher loop, starting queued requests while workflow slots are free.
+	 * The cap is checked again before each workflow of a request is started.
+	 */
+	private void dispatch() {
+		while (running) {
+			try {
+				awaitWorkflowSlot();
+				TranslationRequest request = queue.take();
+				metrics.recordDequeued(System.nanoTime() - request.enqueuedAt);
+				ClaimResult claim = claim(request);
+				if (claim == ClaimResult.CLAIMED_ELSEWHERE) {
+					LOG.info("Translation request already claimed by another instance: {}", request.contentPaths);
+					continue;
+				}
+				if (claim == ClaimResult.CLAIMED && workflowTrigger.triggerTranslationWorkflow(request.contentPaths,
+						request.sourceLanguage, request.destinationLanguages, this::awaitWorkflowSlot)) {
+					complete(request);
+					metrics.recordPipelineLatency(System.nanoTime() - request.enqueuedAt);
+				} else {
+					requeue(request, claim == ClaimResult.CLAIMED);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (Exception e) {
+				LOG.error("Error dispatching translation request", e);
+			}
+		}
+	}
+
+	/**
+	 * Persists a queued request, so it is not lost if the queue stops before the
+	 * request is started.
+	 *
+	 * @return The path of the request node, or {@code null} if it could not be
+	 *         persisted.
+	 */
+	private String persist(List<String> contentPaths, String sourceLanguage, String[] destinationLanguages,
+			int priority) {
+		try (ResourceResolver resolver = resourceResolverFactory
+				.getServiceResourceResolver(TranslationWorkflowTrigger.AUTH_INFO)) {
+			Resource folder = ResourceUtil.getOrCreateResource(resolver, QUEUE_PATH, "sling:Folder", "sling:Folder",
+					false);
+			Map<String, Object> properties = new HashMap<>();
+			properties.put("jcr:primaryType", "nt:unstructured");
+			properties.put(PN_CONTENT_PATHS, contentPaths.toArray(new String[0]));
+			properties.put(PN_SOURCE_LANGUAGE, sourceLanguage);
+			properties.put(PN_DESTINATION_LANGUAGES, destinationLanguages);
+			properties.put(PN_PRIORITY, priority);
+			properties.put(PN_QUEUED, System.currentTimeMillis());
+			Resource request = resolver.create(folder, UUID.randomUUID().toString(), properties);
+			resolver.commit();
+			return request.getPath();
+		} catch (LoginException | PersistenceException e) {
+			LOG.error("Error persisting translation request, it is lost if the queue stops: {}", contentPaths, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Claims a request before it is started by marking its persisted node with
+	 * the Sling id of this instance. On a cluster only the instance whose claim
+	 * commits starts the request; claims left by a previous activation of this
+	 * instance are taken over.
+	 *
+	 * @param request The request taken from the queue.
+	 * @return The outcome of the claim.
+	 */
+	private ClaimResult claim(TranslationRequest request) {
+		if (request.nodePath == null) {
+			return ClaimResult.CLAIMED;
+		}
+		try (ResourceResolver resolver = resourceResolverFactory
+				.getServiceResourceResolver(TranslationWorkflowTrigger.AUTH_INFO)) {
+			Resource node = resolver.getResource(request.nodePath);
+			if (node == null || isClaimedElsewhere(node)) {
+				return ClaimResult.CLAIMED_ELSEWHERE;
+			}
+			ModifiableValueMap properties = node.adaptTo(ModifiableValueMap.class);
+			if (properties == null) {
+				LOG.error("Persisted translation request {} is not modifiable", request.nodePath);
+				return ClaimResult.FAILED;
+			}
+			properties.put(PN_CLAIMED_BY, slingSettings.getSlingId());
+			properties.put(PN_CLAIMED, System.currentTimeMillis());
+			try {
+				resolver.commit();
+				return ClaimResult.CLAIMED;
+			} catch (PersistenceException e) {
+				// only a concurrent claim or start of this node means another instance has it
+				resolver.revert();
+				resolver.refresh();
+				Resource current = resolver.getResource(request.nodePath);
+				if (current == null || isClaimedElsewhere(current)) {
+					return ClaimResult.CLAIMED_ELSEWHERE;
+				}
+				LOG.error("Error claiming persisted translation request {}", request.nodePath, e);
+				return ClaimResult.FAILED;
+			}
+		} catch (LoginException e) {
+			LOG.error("Error claiming persisted translation request {}", request.nodePath, e);
+			return ClaimResult.FAILED;
+		}
+	}
+
+	private boolean isClaimedElsewhere(Resource node) {
+		String claimedBy = node.getValueMap().get(PN_CLAIMED_BY, String.class);
+		return StringUtils.isNotBlank(claimedBy) && !claimedBy.equals(slingSettings.getSlingId());
+	}
+
+	/**
+	 * Removes the persisted node of a request whose workflows are all started.
+	 *
+	 * @param request The started request.
+	 */
+	private void complete(TranslationRequest request) {
+		if (request.nodePath == null) {
+			return;
+		}
+		try (ResourceResolver resolver = resourceResolverFactory
+				.getServiceResourceResolver(TranslationWorkflowTrigger.AUTH_INFO)) {
+			Resource node = resolver.getResource(request.nodePath);
+			if (node != null) {
+				resolver.delete(node);
+				resolver.commit();
+			}
+		} catch (LoginException | PersistenceException e) {
+			// the request is loaded again on the next activation, its in-flight paths are skipped then
+			LOG.error("Error removing started translation request {}", request.nodePath, e);
+		}
+	}
+
+	/**
+	 * Puts a request whose workflows could not all be started back in the queue,
+	 * releasing its claim so other instances can start it. Workflows already
+	 * started for the request are in flight and skipped on the next attempt.
+	 *
+	 * @param request The request taken from the queue.
+	 * @param claimed Whether the request node was claimed by this instance.
+	 * @throws InterruptedException If the dispatcher is stopped.
+	 */
+	private void requeue(TranslationRequest request, boolean claimed) throws InterruptedException {
+		if (claimed) {
+			releaseClaim(request);
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			queue.add(request);
+			metrics.recordQueued();
+			throw new InterruptedException("Translation queue stopped");
+		}
+		if (++request.attempts >= MAX_START_ATTEMPTS) {
+			LOG.error("Translation request failed to start {} times, it is retried on the next activation: {}",
+					request.attempts, request.contentPaths);
+			return;
+		}
+		queue.add(request);
+		metrics.recordQueued();
+		LOG.warn("Translation request failed to start, queued again: {}", request.contentPaths);
+		Thread.sleep(SLOT_POLL_MILLIS);
+	}
+
+	private void releaseClaim(TranslationRequest request) {
+		if (request.nodePath == null) {
+			return;
+		}
+		try (ResourceResolver resolver = resourceResolverFactory
+				.getServiceResourceResolver(TranslationWorkflowTrigger.AUTH_INFO)) {
+			Resource node = resolver.getResource(request.nodePath);
+			ModifiableValueMap properties = node != null ? node.adaptTo(ModifiableValueMap.class) : null;
+			if (properties != null) {
+				properties.remove(PN_CLAIMED_BY);
+				properties.remove(PN_CLAIMED);
+				resolver.commit();
+			}
+		} catch (LoginException | PersistenceException e) {
+			LOG.error("Error releasing the claim of translation request {}", request.nodePath, e);
+		}
+	}
+
+	/**
+	 * Loads the requests persisted by a previous activation, in their original
+	 * order.
+	 */
+	private void loadPendingRequests() {
+		try (ResourceResolver resolver = resourceResolverFactory
+				.getServiceResourceResolver(TranslationWorkflowTrigger.AUTH_INFO)) {
+			Resource folder = resolver.getResource(QUEUE_PATH);
+			if (folder == null) {
+				return;
+			}
+			List<Resource> nodes = new ArrayList<>();
+			folder.getChildren().forEach(nodes::add);
+			nodes.sort(Comparator.comparingLong(node -> node.getValueMap().get(PN_QUEUED, 0L)));
+			for (Resource node : nodes) {
+				ValueMap properties = node.getValueMap();
+				String[] contentPaths = properties.get(PN_CONTENT_PATHS, String[].class);
+				String[] destinationLanguages = properties.get(PN_DESTINATION_LANGUAGES, String[].class);
+				if (contentPaths == null || destinationLanguages == null) {
+					continue;
+				}
+				queue.add(new TranslationRequest(Arrays.asList(contentPaths), properties.get(PN_SOURCE_LANGUAGE, String.class),
+						destinationLanguages, properties.get(PN_PRIORITY, 0), sequence.incrementAndGet(), node.getPath()));
+				metrics.recordQueued();
+			}
+			if (!nodes.isEmpty()) {
+				LOG.info("Loaded {} pending translation requests", queue.size());
+			}
+		} catch (LoginException e) {
+			LOG.error("Error loading pending translation requests", e);
+		}
+	}
+
+	/**
+	 * Blocks until fewer than the maximum number of translation workflows are in
+	 * flight. Polls periodically in case a completion event was missed.
+	 *
+	 * @throws InterruptedException If the dispatcher is stopped.
+	 */
+	private void awaitWorkflowSlot() throws InterruptedException {
+		synchronized (slotMonitor) {
+			while (running && workflowTrigger.getInFlightWorkflowCount() >= maxConcurrentWorkflows) {
+				slotMonitor.wait(SLOT_POLL_MILLIS);
+			}
+		}
+		if (!running) {
+			throw new InterruptedException("Translation queue stopped");
+		}
+	}
+
+	/**
+	 * Resolves the priority of a request from the page property of its paths,
+	 * falling back to the priority rules.
+	 *
+	 * @param contentPaths The paths of the content to be translated.
+	 * @return The highest priority of the paths.
+	 */
+	private int getPriority(List<String> contentPaths) {
+		int priority = Integer.MIN_VALUE;
+		try (ResourceResolver resolver = resourceResolverFactory
+				.getServiceResourceResolver(TranslationWorkflowTrigger.AUTH_INFO)) {
+			for (String contentPath : contentPaths) {
+				priority = Math.max(priority, getPriority(resolver, contentPath));
+			}
+		} catch (LoginException e) {
+			LOG.error("Error resolving translation priority for content paths: {}", contentPaths, e);
+			for (String contentPath : contentPaths) {
+				priority = Math.max(priority, getRulePriority(contentPath));
+			}
+		}
+		return priority == Integer.MIN_VALUE ? 0 : priority;
+	}
+
+	private int getPriority(ResourceResolver resolver, String contentPath) {
+		Resource content = resolver.getResource(contentPath + JCR_CONTENT);
+		if (content != null && StringUtils.isNotBlank(priorityProperty)) {
+			Integer pagePriority = content.getValueMap().get(priorityProperty, Integer.class);
+			if (pagePriority != null) {
+				return pagePriority;
+			}
+		}
+		return getRulePriority(contentPath);
+	}
+
+	private int getRulePriority(String contentPath) {
+		List<Integer> matches = priorityRules.match(contentPath);
+		return matches.isEmpty() ? 0 : matches.get(matches.size() - 1);
+	}
+
+	/**
+	 * Compiles the configured priority rules into a path prefix trie.
+	 *
+	 * @param rules The configured rules.
+	 * @return The compiled rules.
+	 */
+	private static PathPrefixTrie<Integer> compilePriorityRules(String[] rules) {
+		PathPrefixTrie<Integer> trie = new PathPrefixTrie<>();
+		if (rules == null) {
+			return trie;
+		}
+		for (String rule : rules) {
+			if (StringUtils.isBlank(rule)) {
+				continue;
+			}
+			String[] values = rule.split(RULE_SEPARATOR);
+			try {
+				trie.put(values[0].trim(), Integer.parseInt(values[1].trim()));
+			} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+				LOG.warn("Ignoring invalid translation priority rule: {}", rule);
+			}
+		}
+		return trie;
+	}
+
+	/**
+	 * The outcome of claiming a persisted request.
+	 */
+	private enum ClaimResult {
+		CLAIMED, CLAIMED_ELSEWHERE, FAILED
+	}
+
+	/**
+	 * A queued translation request, ordered by descending priority and then by
+	 * arrival.
+	 */
+	private static final class TranslationRequest implements Comparable<TranslationRequest> {
+
+		private final List<String> contentPaths;
+
+		private final String sourceLanguage;
+
+		private final String[] destinationLanguages;
+
+		private final int priority;
+
+		private final long sequence;
+
+		private final String nodePath;
+
+		private final long enqueuedAt = System.nanoTime();
+
+		private int attempts;
+
+		private TranslationRequest(List<String> contentPaths, String sourceLanguage, String[] destinationLanguages,
+				int priority, long sequence, String nodePath) {
+			this.contentPaths = contentPaths;
+			this.sourceLanguage = sourceLanguage;
+			this.destinationLanguages = destinationLanguages;
+			this.priority = priority;
+			this.sequence = sequence;
+			this.nodePath = nodePath;
+		}
+
+		@Override
+		public int compareTo(TranslationRequest other) {
+			int result = Integer.compare(other.priority, priority);
+			return result != 0 ? result : Long.compare(sequence, other.sequence);
+		}
+	}
+}
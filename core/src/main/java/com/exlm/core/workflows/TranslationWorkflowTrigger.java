@@ -1,23 +1,40 @@
 package com.exlm.core.workflows;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.commons.scheduler.ScheduleOptions;
+import org.apache.sling.commons.scheduler.Scheduler;
 import org.apache.sling.jcr.api.SlingRepository;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 
+import com.day.cq.wcm.api.Page;
+import com.day.cq.wcm.api.WCMException;
+import com.day.cq.wcm.workflow.api.WorkflowPackageManager;
 import com.day.cq.workflow.WorkflowException;
 import com.day.cq.workflow.WorkflowService;
 import com.day.cq.workflow.WorkflowSession;
+import com.day.cq.workflow.exec.Workflow;
 import com.day.cq.workflow.exec.WorkflowData;
+import com.day.cq.workflow.metadata.MetaDataMap;
 import com.day.cq.workflow.model.WorkflowModel;
+import com.exlm.core.service.TranslationPipelineMetrics;
+import com.exlm.core.service.TranslationProjectRegistry;
+import com.exlm.core.service.TranslationProjectRegistry.TranslationProject;
+import com.exlm.core.service.TranslationWorkflowConfig;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javax.jcr.Session;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Triggers translation workflows for content paths.
@@ -36,6 +53,21 @@ public class TranslationWorkflowTrigger {
 	@Reference
 	private ResourceResolverFactory resourceResolverFactory;
 
+	@Reference
+	private TranslationProjectRegistry translationProjectRegistry;
+
+	@Reference
+	private TranslationPipelineMetrics metrics;
+
+	@Reference
+	private TranslationWorkflowConfig translationWorkflowConfig;
+
+	@Reference
+	private WorkflowPackageManager workflowPackageManager;
+
+	@Reference
+	private Scheduler scheduler;
+
 	public static final String EXL_SERVICE_USER = "exl-workflow-user";
 
 	public static final Map<String, Object> AUTH_INFO = Collections
@@ -46,56 +78,236 @@ public class TranslationWorkflowTrigger {
 	private static final String PREPARE_TRANSLATION_PROJECT = "/var/workflow/models/wcm-translation/prepare_translation_project";
 	private static final String ADD_NEW_MULTI_LANG = "add_new_multi_lang";
 	private static final String ADD_EXISTING = "add_existing";
-	private static final String PROJECT_PATH = "/content/projects/exlm_auto_translation";
-	private static final String PROJECT_TITLE = "EXLM Translation Project";
 	private static final String WORKFLOW_LAUNCH_TITLE = "Translation review";
 	private static final String CLOUD_CONFIG_PATH = "/conf/exlm";
 
-	private static Map<String, Map<String, String>> existingTranslationProjects = new HashMap<>();
+	private static final String SOURCE_PATHS = "exlmSourcePaths";
+	private static final String PAYLOAD_PACKAGE = "exlmPayloadPackage";
+	private static final String PACKAGE_BUCKET = "exlm-translation";
+	private static final String LANGUAGE_LIST = "languageList";
+	private static final String RUNNING_STATE = "RUNNING";
+	private static final String RECONCILE_JOB_NAME = "exlm-translation-inflight-reconcile";
+	private static final long RECONCILE_INTERVAL_SECONDS = 600;
+
+	private final InFlightTranslationIndex inFlightIndex = new InFlightTranslationIndex();
+
+	/** Workflow packages of in-flight workflows, keyed by workflow id. */
+	private final Map<String, String> payloadPackages = new ConcurrentHashMap<>();
+
+	@Activate
+	protected void activate() {
+		rebuildInFlightIndex();
+		ScheduleOptions options = scheduler.PERIODIC(RECONCILE_INTERVAL_SECONDS);
+		options.name(RECONCILE_JOB_NAME);
+		options.canRunConcurrently(false);
+		scheduler.schedule((Runnable) this::reconcileInFlightIndex, options);
+	}
+
+	@Deactivate
+	protected void deactivate() {
+		scheduler.unschedule(RECONCILE_JOB_NAME);
+	}
+
+	/**
+	 * Rebuilds the in-flight index from the running translation workflows, so
+	 * requests are still deduplicated after a restart.
+	 */
+	private void rebuildInFlightIndex() {
+		inFlightIndex.clear();
+		payloadPackages.clear();
+		WorkflowSession workflowSession = null;
+		ResourceResolver resolver = null;
+		try {
+			resolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO);
+			workflowSession = workflowService.getWorkflowSession(resolver.adaptTo(Session.class));
+			for (Workflow workflow : workflowSession.getWorkflows(new String[] { RUNNING_STATE })) {
+				MetaDataMap metaData = workflow.getWorkflowData().getMetaDataMap();
+				String languages = metaData.get(LANGUAGE_LIST, String.class);
+				List<String> sourcePaths = getSourcePaths(resolver, workflow.getId(), metaData);
+				if (StringUtils.isNotBlank(languages) && !sourcePaths.isEmpty()) {
+					inFlightIndex.bind(workflow.getId(), sourcePaths, Arrays.asList(languages.split(",")),
+							workflow.getTimeStarted() != null ? workflow.getTimeStarted().getTime()
+									: System.currentTimeMillis());
+				}
+			}
+			LOG.info("Rebuilt in-flight translation index with {} workflows", inFlightIndex.getWorkflowCount());
+		} catch (Exception e) {
+			LOG.error("Error rebuilding in-flight translation index", e);
+		} finally {
+			if (workflowSession != null) {
+				workflowSession.getSession().logout();
+			}
+			if (resolver != null) {
+				resolver.close();
+			}
+		}
+	}
+
+	/**
+	 * Releases workflows from the in-flight index that are no longer running, e.g.
+	 * after a missed completion event or while suspended, and workflows running
+	 * longer than the in-flight timeout. Otherwise their pairs would stay
+	 * suppressed and hold a slot of the translation queue for good. Packages of
+	 * workflows that are no longer running are kept, a suspended workflow may
+	 * still be resumed; workflows past the timeout are released for good.
+	 */
+	private void reconcileInFlightIndex() {
+		WorkflowSession workflowSession = null;
+		ResourceResolver resolver = null;
+		try {
+			resolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO);
+			workflowSession = workflowService.getWorkflowSession(resolver.adaptTo(Session.class));
+			// workflows bound after the listing started may be missing from it
+			long listedAt = System.currentTimeMillis();
+			Set<String> runningIds = new HashSet<>();
+			for (Workflow workflow : workflowSession.getWorkflows(new String[] { RUNNING_STATE })) {
+				runningIds.add(workflow.getId());
+			}
+			long expiredBefore = listedAt - TimeUnit.HOURS.toMillis(translationWorkflowConfig.getInFlightTimeout());
+			for (Map.Entry<String, Long> workflow : inFlightIndex.getWorkflows().entrySet()) {
+				long boundAt = workflow.getValue();
+				if (boundAt < listedAt && !runningIds.contains(workflow.getKey())) {
+					LOG.info("Releasing translation workflow {} that is no longer running", workflow.getKey());
+					inFlightIndex.release(workflow.getKey());
+				} else if (boundAt < expiredBefore) {
+					LOG.warn("Releasing translation workflow {} running since {}", workflow.getKey(), new Date(boundAt));
+					releaseWorkflow(workflow.getKey());
+				}
+			}
+		} catch (Exception e) {
+			LOG.error("Error reconciling in-flight translation index", e);
+		} finally {
+			if (workflowSession != null) {
+				workflowSession.getSession().logout();
+			}
+			if (resolver != null) {
+				resolver.close();
+			}
+		}
+	}
+
+	/**
+	 * Reads the source paths of a running workflow, from its workflow package if
+	 * the paths were passed as a package.
+	 *
+	 * @param resolver   The ResourceResolver used to read the workflow package.
+	 * @param workflowId The workflow instance id.
+	 * @param metaData   The workflow metadata.
+	 * @return The source paths, empty if the workflow has none.
+	 */
+	private List<String> getSourcePaths(ResourceResolver resolver, String workflowId, MetaDataMap metaData) {
+		String payloadPackage = metaData.get(PAYLOAD_PACKAGE, String.class);
+		if (StringUtils.isNotBlank(payloadPackage)) {
+			try {
+				payloadPackages.put(workflowId, payloadPackage);
+				return workflowPackageManager.getPaths(resolver, payloadPackage);
+			} catch (WCMException e) {
+				LOG.error("Error reading workflow package {} of workflow {}", payloadPackage, workflowId, e);
+				return Collections.emptyList();
+			}
+		}
+		String sourcePaths = metaData.get(SOURCE_PATHS, String.class);
+		return StringUtils.isNotBlank(sourcePaths) ? Arrays.asList(sourcePaths.split(",")) : Collections.emptyList();
+	}
 
 	/**
-	 * Triggers translation workflow for the specified content paths.
+	 * Removes a completed or aborted workflow from the in-flight index and deletes
+	 * its workflow package.
 	 *
-	 * @param contentPaths   The paths of the content to be translated.
-	 * @param sourceLanguage The source language of the content.
+	 * @param workflowId The workflow instance id.
 	 */
-	public void triggerTranslationWorkflow(List<String> contentPaths, String sourceLanguage,
-			String[] destinationLanguages) {
+	public void releaseWorkflow(String workflowId) {
+		inFlightIndex.release(workflowId);
+		String payloadPackage = payloadPackages.remove(workflowId);
+		if (payloadPackage != null) {
+			try (ResourceResolver resolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO)) {
+				deletePayloadPackage(resolver, payloadPackage);
+			} catch (Exception e) {
+				LOG.error("Error deleting workflow package {}", payloadPackage, e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of translation workflows currently in flight.
+	 *
+	 * @return The number of in-flight workflows.
+	 */
+	public int getInFlightWorkflowCount() {
+		return inFlightIndex.getWorkflowCount();
+	}
 
+	/**
+	 * Triggers translation workflow for the specified content paths. Paths that
+	 * already have a workflow in flight for a destination language are skipped
+	 * for that language.
+	 *
+	 * @param contentPaths         The paths of the content to be translated.
+	 * @param sourceLanguage       The source language of the content.
+	 * @param destinationLanguages The destination languages for translation.
+	 * @param slotGate             Called before each workflow is started, as one
+	 *                             request can start a workflow per language group.
+	 * @return {@code true} if every workflow needed for the request is started or
+	 *         already in flight.
+	 */
+	public boolean triggerTranslationWorkflow(List<String> contentPaths, String sourceLanguage,
+			String[] destinationLanguages, WorkflowSlotGate slotGate) {
+
+		String reservationId = inFlightIndex.newReservation();
 		WorkflowSession workflowSession = null;
 		ResourceResolver resolver = null;
 		try {
+			Map<List<String>, List<String>> languagesByPaths = reservePendingPaths(reservationId, contentPaths,
+					destinationLanguages);
+			if (languagesByPaths.isEmpty()) {
+				LOG.info("Translation already in flight for content paths: {}", contentPaths);
+				return true;
+			}
+
 			resolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO);
 			workflowSession = workflowService.getWorkflowSession(resolver.adaptTo(Session.class));
 
-			List<String> createLanguages = new ArrayList<>();
-			List<String> updateLanguages = new ArrayList<>();
+			for (Map.Entry<List<String>, List<String>> entry : languagesByPaths.entrySet()) {
+				List<String> pendingPaths = entry.getKey();
+				List<String> createLanguages = new ArrayList<>();
+				List<String> updateLanguages = new ArrayList<>();
 
-			for (String destinationLanguage : destinationLanguages) {
-				boolean languageCopyExists = checkIfLanguageCopyExists(resolver, contentPaths, destinationLanguage);
+				long checkStart = System.nanoTime();
+				for (String destinationLanguage : entry.getValue()) {
+					boolean languageCopyExists = checkIfLanguageCopyExists(resolver, pendingPaths, destinationLanguage);
 
-				if (!languageCopyExists) {
-					createLanguages.add(destinationLanguage);
-				} else {
-					updateLanguages.add(destinationLanguage);
+					if (!languageCopyExists) {
+						createLanguages.add(destinationLanguage);
+					} else {
+						updateLanguages.add(destinationLanguage);
+					}
 				}
-			}
+				metrics.recordLanguageCopyCheck(System.nanoTime() - checkStart);
 
-			if (!createLanguages.isEmpty()) {
-				triggerWorkflow(workflowSession, contentPaths, sourceLanguage, createLanguages, CREATE_LANGUAGE_COPY,
-						false);
-			}
+				if (!createLanguages.isEmpty()) {
+					slotGate.awaitSlot();
+					triggerWorkflow(workflowSession, resolver, pendingPaths, sourceLanguage, createLanguages,
+							CREATE_LANGUAGE_COPY, false);
+				}
 
-			if (!updateLanguages.isEmpty()) {
-				triggerWorkflow(workflowSession, contentPaths, sourceLanguage, updateLanguages, UPDATE_LANGUAGE_COPY,
-						true);
+				if (!updateLanguages.isEmpty()) {
+					slotGate.awaitSlot();
+					triggerWorkflow(workflowSession, resolver, pendingPaths, sourceLanguage, updateLanguages,
+							UPDATE_LANGUAGE_COPY, true);
+				}
 			}
+			return true;
 
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOG.info("Translation request interrupted before all workflows started: {}", contentPaths);
 		} catch (WorkflowException e) {
 			LOG.error("Error triggering translation workflow", e);
 		} catch (Exception e) {
 			LOG.error("Unexpected error occurred", e);
 		} finally {
+			// pairs bound to started workflows are kept, anything else is released
+			inFlightIndex.release(reservationId);
 			if (workflowSession != null) {
 				workflowSession.getSession().logout();
 			}
@@ -103,7 +315,34 @@ public class TranslationWorkflowTrigger {
 				resolver.close();
 			}
 		}
+		return false;
+	}
 
+	/**
+	 * Reserves the content paths that are not in flight yet and groups the
+	 * destination languages by the resulting set of paths, so languages sharing
+	 * the same pending paths are still started in a single workflow.
+	 *
+	 * @param reservationId        The reservation id in the in-flight index.
+	 * @param contentPaths         The paths of the content to be translated.
+	 * @param destinationLanguages The destination languages for translation.
+	 * @return The destination languages keyed by their pending content paths.
+	 */
+	private Map<List<String>, List<String>> reservePendingPaths(String reservationId, List<String> contentPaths,
+			String[] destinationLanguages) {
+		Map<List<String>, List<String>> languagesByPaths = new LinkedHashMap<>();
+		for (String destinationLanguage : destinationLanguages) {
+			List<String> pendingPaths = inFlightIndex.reserve(reservationId, contentPaths, destinationLanguage);
+			if (pendingPaths.size() < contentPaths.size()) {
+				metrics.recordDuplicatesSuppressed(contentPaths.size() - pendingPaths.size());
+				LOG.info("Skipping {} content path(s) already in flight for language {}",
+						contentPaths.size() - pendingPaths.size(), destinationLanguage);
+			}
+			if (!pendingPaths.isEmpty()) {
+				languagesByPaths.computeIfAbsent(pendingPaths, paths -> new ArrayList<>()).add(destinationLanguage);
+			}
+		}
+		return languagesByPaths;
 	}
 
 	/**
@@ -111,25 +350,116 @@ public class TranslationWorkflowTrigger {
 	 * languages.
 	 *
 	 * @param workflowSession      The WorkflowSession object.
+	 * @param resolver             The ResourceResolver used to register the
+	 *                             translation project.
 	 * @param contentPaths         The paths of the content to be translated.
 	 * @param sourceLanguage       The source language of the content.
 	 * @param destinationLanguages The languages to translate the content into.
 	 * @param workflowModelPath    The path of the workflow model.
 	 * @param isUpdate             Flag indicating whether it's an update workflow.
-	 * @throws WorkflowException If an error occurs during workflow processing.
+	 * @throws WorkflowException    If an error occurs during workflow processing.
+	 * @throws PersistenceException If the workflow package can not be created.
 	 */
-	private void triggerWorkflow(WorkflowSession workflowSession, List<String> contentPaths, String sourceLanguage,
-			List<String> destinationLanguages, String workflowModelPath, boolean isUpdate) throws WorkflowException {
-		WorkflowModel workflowModel = workflowSession.getModel(workflowModelPath);
-		String jcrPath = isUpdate ? getLanguageCopy(contentPaths.get(0), destinationLanguages).split(";")[0]
-				: StringUtils.join(contentPaths, ",");
-		WorkflowData workflowData = workflowSession.newWorkflowData("JCR_PATH", jcrPath);
-		setWorkflowMetadata(workflowData, sourceLanguage, destinationLanguages, contentPaths, isUpdate);
-		workflowSession.startWorkflow(workflowModel, workflowData);
+	private void triggerWorkflow(WorkflowSession workflowSession, ResourceResolver resolver, List<String> contentPaths,
+			String sourceLanguage, List<String> destinationLanguages, String workflowModelPath, boolean isUpdate)
+			throws WorkflowException, PersistenceException {
+		// update workflows run on the language copy and keep their source paths in the metadata
+		int packageThreshold = translationWorkflowConfig.getPackagePayloadThreshold();
+		TranslationProject project = null;
+		String payloadPackage = null;
+		long startedAt;
+		Workflow workflow = null;
+		try {
+			WorkflowModel workflowModel = workflowSession.getModel(workflowModelPath);
+			project = translationProjectRegistry.acquireProject(resolver);
+			if (!isUpdate && packageThreshold > 0 && contentPaths.size() > packageThreshold) {
+				payloadPackage = createPayloadPackage(resolver, contentPaths);
+			}
+			String jcrPath;
+			if (isUpdate) {
+				jcrPath = getLanguageCopy(contentPaths.get(0), destinationLanguages).split(";")[0];
+			} else {
+				jcrPath = payloadPackage != null ? payloadPackage : StringUtils.join(contentPaths, ",");
+			}
+			WorkflowData workflowData = workflowSession.newWorkflowData("JCR_PATH", jcrPath);
+			setWorkflowMetadata(workflowData, project, sourceLanguage, destinationLanguages, contentPaths,
+					payloadPackage, isUpdate);
+			startedAt = System.nanoTime();
+			workflow = workflowSession.startWorkflow(workflowModel, workflowData);
+		} finally {
+			if (workflow == null) {
+				// counts every failure, whichever exception stopped the start
+				metrics.recordWorkflowFailed(workflowModelPath);
+				if (project != null) {
+					translationProjectRegistry.releaseProject(project);
+				}
+				// a package without a started workflow would never be cleaned up
+				if (payloadPackage != null) {
+					try {
+						deletePayloadPackage(resolver, payloadPackage);
+					} catch (PersistenceException e) {
+						resolver.revert();
+						LOG.error("Error deleting workflow package {}", payloadPackage, e);
+					}
+				}
+			}
+		}
+		metrics.recordWorkflowStarted(workflowModelPath, System.nanoTime() - startedAt);
+		inFlightIndex.bind(workflow.getId(), contentPaths, destinationLanguages);
+		try {
+			translationProjectRegistry.recordJob(resolver, project);
+		} catch (PersistenceException e) {
+			// the workflow runs anyway, its job is persisted along with the next one
+			resolver.revert();
+			LOG.error("Error recording translation job of workflow {}", workflow.getId(), e);
+		}
+		if (payloadPackage != null) {
+			payloadPackages.put(workflow.getId(), payloadPackage);
+		}
 
 		LOG.info("Translation workflow triggered successfully for content paths: {}", contentPaths);
 	}
 
+	/**
+	 * Creates a workflow package holding the content paths, so large batches are
+	 * passed to the workflow as a single payload.
+	 *
+	 * @param resolver     The ResourceResolver used to create the package.
+	 * @param contentPaths The paths of the content to be translated.
+	 * @return The path of the workflow package.
+	 * @throws PersistenceException If the package can not be created.
+	 */
+	private String createPayloadPackage(ResourceResolver resolver, List<String> contentPaths)
+			throws PersistenceException {
+		try {
+			Page workflowPackage = workflowPackageManager.create(resolver, PACKAGE_BUCKET,
+					PACKAGE_BUCKET + "-" + UUID.randomUUID(), contentPaths.toArray(new String[0]));
+			if (resolver.hasChanges()) {
+				resolver.commit();
+			}
+			LOG.info("Created workflow package {} for {} content paths", workflowPackage.getPath(),
+					contentPaths.size());
+			return workflowPackage.getPath();
+		} catch (WCMException e) {
+			throw new PersistenceException("Error creating workflow package", e);
+		}
+	}
+
+	/**
+	 * Deletes a workflow package that is no longer used by a workflow.
+	 *
+	 * @param resolver       The ResourceResolver used to delete the package.
+	 * @param payloadPackage The path of the workflow package.
+	 * @throws PersistenceException If the package can not be deleted.
+	 */
+	private void deletePayloadPackage(ResourceResolver resolver, String payloadPackage) throws PersistenceException {
+		Resource packageResource = resolver.getResource(payloadPackage);
+		if (packageResource != null) {
+			resolver.delete(packageResource);
+			resolver.commit();
+		}
+	}
+
 	/**
 	 * Checks if language copies exist for the specified content paths and
 	 * destination language.
@@ -185,50 +515,28 @@ public class TranslationWorkflowTrigger {
 		return String.join(";", languageCopyPaths);
 	}
 
-	/**
-	 * Checks if a project with the given project path already exists in the
-	 * existingTranslationProjects map.
-	 *
-	 * @param projectPath The path of the project to check for existence.
-	 * @return {@code true} if a project with the given project path exists,
-	 *         {@code false} otherwise.
-	 */
-	private static boolean projectExists(String projectPath) {
-		for (Map.Entry<String, Map<String, String>> entry : existingTranslationProjects.entrySet()) {
-			Map<String, String> metaData = entry.getValue();
-			String existingPath = metaData.get("projectFolderPath");
-			if (existingPath.equals(projectPath)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
 	/**
 	 * Sets metadata for the workflow data.
 	 *
 	 * @param workflowData         The WorkflowData object to set metadata.
+	 * @param project              The translation project to add the job to.
 	 * @param sourceLanguage       The source language.
 	 * @param destinationLanguages The list of destination languages.
 	 * @param contentPaths         The paths of the content to be translated.
+	 * @param payloadPackage       The workflow package holding the content paths,
+	 *                             or {@code null} if the paths are not packaged.
 	 * @param isUpdate             Flag indicating whether it's an update workflow.
 	 */
-	private void setWorkflowMetadata(WorkflowData workflowData, String sourceLanguage,
-			List<String> destinationLanguages, List<String> contentPaths, boolean isUpdate) {
+	private void setWorkflowMetadata(WorkflowData workflowData, TranslationProject project, String sourceLanguage,
+			List<String> destinationLanguages, List<String> contentPaths, String payloadPackage, boolean isUpdate) {
 		Map<String, Object> metaDataMap = new HashMap<>();
-		String projectPath = PROJECT_PATH + "/" + PROJECT_TITLE.toLowerCase().replaceAll(" ", "_");
-		if (projectExists(projectPath)) {
-			metaDataMap.put("projectType", ADD_EXISTING);
-			metaDataMap.put("projectFolderPath", projectPath);
-		} else {
-			metaDataMap.put("projectTitle", PROJECT_TITLE);
+		if (project.isNew()) {
+			metaDataMap.put("projectTitle", project.getProjectTitle());
 			metaDataMap.put("projectType", ADD_NEW_MULTI_LANG);
-			metaDataMap.put("projectFolderPath", PROJECT_PATH);
-
-			Map<String, String> projectMetadata = new HashMap<>();
-			projectMetadata.put("projectTitle", PROJECT_TITLE);
-			projectMetadata.put("projectFolderPath", projectPath);
-			existingTranslationProjects.put("Project", projectMetadata);
+			metaDataMap.put("projectFolderPath", TranslationProjectRegistry.PROJECT_FOLDER_PATH);
+		} else {
+			metaDataMap.put("projectType", ADD_EXISTING);
+			metaDataMap.put("projectFolderPath", project.getProjectPath());
 		}
 		metaDataMap.put("cloudConfigPath", CLOUD_CONFIG_PATH);
 		String languageCopyPayload = getLanguageCopy(contentPaths.get(0), destinationLanguages);
@@ -245,7 +553,13 @@ public class TranslationWorkflowTrigger {
 		}
 
 		metaDataMap.put("language", sourceLanguage);
-		metaDataMap.put("languageList", StringUtils.join(destinationLanguages, ","));
+		metaDataMap.put(LANGUAGE_LIST, StringUtils.join(destinationLanguages, ","));
+		// packaged paths are read back from the package, keeping the metadata small
+		if (payloadPackage != null) {
+			metaDataMap.put(PAYLOAD_PACKAGE, payloadPackage);
+		} else {
+			metaDataMap.put(SOURCE_PATHS, StringUtils.join(contentPaths, ","));
+		}
 		metaDataMap.put("deep", true);
 		metaDataMap.put("translationWorkflowModel", PREPARE_TRANSLATION_PROJECT);
 		metaDataMap.put("translationAutomaticApproveEnable", true);
@@ -254,4 +568,18 @@ public class TranslationWorkflowTrigger {
 
 		workflowData.getMetaDataMap().putAll(metaDataMap);
 	}
+
+	/**
+	 * Blocks until the caller may start another translation workflow.
+	 */
+	@FunctionalInterface
+	public interface WorkflowSlotGate {
+
+		/**
+		 * Returns once another workflow may be started.
+		 *
+		 * @throws InterruptedException If the caller is stopped while waiting.
+		 */
+		void awaitSlot() throws InterruptedException;
+	}
 }
@@ -0,0 +1,244 @@
+package com.exlm.core.schedulers;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the ExL tag apis, serving a synthetic catalog of configurable size.
+ * Endpoints can be made slow or failing to benchmark the sync against degraded apis.
+ */
+public class ExlApiStub implements AutoCloseable {
+
+    public static final String TYPES = "/api/types";
+    public static final String LEVELS = "/api/levels";
+    public static final String ROLES = "/api/roles";
+    public static final String SOLUTIONS = "/api/solutions";
+    public static final String FEATURES = "/api/features";
+
+    public static final int SLASH_NAME_INTERVAL = 5;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private final int tagsPerCategory;
+
+    private final int solutions;
+
+    private final int featuresPerSolution;
+
+    private final Map<String, Long> latencyMillis = new ConcurrentHashMap<>();
+
+    private final Set<String> failingEndpoints = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, byte[]> responses = new ConcurrentHashMap<>();
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * @param tagsPerCategory tags served by the types, levels and roles endpoints
+     * @param solutions solutions served by the solutions endpoint
+     * @param featuresPerSolution features served per solution
+     * @throws IOException
+     */
+    public ExlApiStub(int tagsPerCategory, int solutions, int featuresPerSolution) throws IOException {
+        this.tagsPerCategory = tagsPerCategory;
+        this.solutions = solutions;
+        this.featuresPerSolution = featuresPerSolution;
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Delay every response of the endpoint
+     *
+     * @param endpoint
+     * @param millis
+     */
+    public void setLatency(String endpoint, long millis) {
+        latencyMillis.put(endpoint, millis);
+    }
+
+    /**
+     * Respond to every request of the endpoint with a server error
+     *
+     * @param endpoint
+     */
+    public void setFailing(String endpoint) {
+        failingEndpoints.add(endpoint);
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Base url of an endpoint, e.g. http://localhost:12345/api/levels?page_size=1000
+     *
+     * @param endpoint
+     * @return url
+     */
+    public String url(String endpoint) {
+        return "http://localhost:" + server.getAddress().getPort() + endpoint + "?page_size=1000";
+    }
+
+    /**
+     * exlTagApis config of the sync for all stub endpoints
+     *
+     * @return exlTagApis
+     */
+    public String[] getExlTagApis() {
+        return new String[] {
+                "Content-Type," + url(TYPES) + ",,no-format",
+                "Experience-Level," + url(LEVELS) + ",,json-format",
+                "Role," + url(ROLES) + ",,json-format",
+                "Solution," + url(SOLUTIONS) + ",,no-format",
+                "Feature," + url(FEATURES) + ",Solution,json-format"
+        };
+    }
+
+    /**
+     * English tag names of a category; every fifth name is padded with question marks until its Base64 contains a
+     * slash, as real names like "Analytics???" do
+     *
+     * @param prefix
+     * @param count
+     * @return names
+     */
+    public static List<String> names(String prefix, int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = prefix + " " + i;
+            if (i % SLASH_NAME_INTERVAL == SLASH_NAME_INTERVAL - 1) {
+                while (encode(name).indexOf('/') < 0) {
+                    name += "?";
+                }
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    /**
+     * @param name
+     * @return the Base64 of the UTF-8 bytes of the name, i.e. its tag node name
+     */
+    public static String encode(String name) {
+        return Base64.getEncoder().encodeToString(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String endpoint = exchange.getRequestURI().getPath();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        try {
+            Long latency = latencyMillis.get(endpoint);
+            if (latency != null) {
+                Thread.sleep(latency);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        byte[] body = null;
+        int status = 500;
+        if (!failingEndpoints.contains(endpoint)) {
+            String lang = query.getOrDefault("lang", "en");
+            String solution = query.get("Solution");
+            body = responses.computeIfAbsent(endpoint + "|" + lang + "|" + solution, k -> render(endpoint, lang, solution));
+            status = body != null ? 200 : 404;
+        }
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private byte[] render(String endpoint, String lang, String solution) {
+        JsonArray data = new JsonArray();
+        switch (endpoint) {
+            case TYPES:
+                // no-format categories are plain strings, identical in all locales
+                names("Type", tagsPerCategory).forEach(data::add);
+                break;
+            case LEVELS:
+                names("Level", tagsPerCategory).forEach(name -> data.add(localized(name, lang)));
+                break;
+            case ROLES:
+                names("Role", tagsPerCategory).forEach(name -> data.add(localized(name, lang)));
+                break;
+            case SOLUTIONS:
+                for (String name : names("Solution", solutions)) {
+                    JsonObject solutionJson = new JsonObject();
+                    solutionJson.addProperty("Name", name);
+                    data.add(solutionJson);
+                }
+                break;
+            case FEATURES:
+                if (solution != null) {
+                    names(solution + " Feature", featuresPerSolution).forEach(name -> data.add(localized(name, lang)));
+                }
+                break;
+            default:
+                return null;
+        }
+        JsonObject json = new JsonObject();
+        json.add("data", data);
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static JsonObject localized(String name, String lang) {
+        JsonObject json = new JsonObject();
+        if ("en".equals(lang)) {
+            json.addProperty("Name", name);
+        } else {
+            json.addProperty("Name", name + " (" + lang + ")");
+            json.addProperty("Name_en", name);
+        }
+        return json;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                String[] values = parameter.split("=", 2);
+                query.put(URLDecoder.decode(values[0], "UTF-8"), values.length > 1 ? URLDecoder.decode(values[1], "UTF-8") : "");
+            }
+        }
+        return query;
+    }
+}
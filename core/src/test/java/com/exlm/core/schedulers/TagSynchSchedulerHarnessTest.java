@@ -0,0 +1,230 @@
+package com.exlm.core.schedulers;
+
+import com.day.cq.replication.ReplicationActionType;
+import com.day.cq.replication.Replicator;
+import com.day.cq.tagging.Tag;
+import com.day.cq.tagging.TagManager;
+import com.exlm.core.service.TagIdCodec;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.commons.scheduler.Scheduler;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.Session;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * End-to-end harness of the tag sync: drives {@link TagSynchScheduler#run()} against a local
+ * {@link ExlApiStub} and an in-memory repository, and reports the stats of the run.
+ * The full size benchmark runs with -Dexlm.tagsync.benchmark=true, sizes can be set with
+ * -Dexlm.tagsync.tags, -Dexlm.tagsync.solutions and -Dexlm.tagsync.features.
+ */
+@ExtendWith(AemContextExtension.class)
+class TagSynchSchedulerHarnessTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TagSynchSchedulerHarnessTest.class);
+
+    private static final String[] LOCALES = { "en,en", "de,de", "fr,fr" };
+
+    private static final String[] ALL_LOCALES = {
+            "en,en", "de,de", "es,es", "fr,fr", "it,it", "ja,ja",
+            "ko,ko", "nl,nl", "pt-BR,pt", "sv,sv", "zh-TW,tw", "zh-CN,zh"
+    };
+
+    private final AemContext context = new AemContext(ResourceResolverType.JCR_MOCK);
+
+    private final Replicator replicator = mock(Replicator.class);
+
+    private ExlApiStub stub;
+
+    @AfterEach
+    void tearDown() {
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void syncCreatesAndLocalizesTags() throws Exception {
+        int tags = 50;
+        int solutions = 3;
+        int features = 5;
+        TagSynchScheduler scheduler = setUp(tags, solutions, features, LOCALES);
+
+        scheduler.run();
+
+        TagSyncRunStats stats = report("sync", scheduler);
+        int locales = LOCALES.length;
+        assertEquals(expectedCreates(tags, solutions, features), stats.getTagCreates());
+        assertEquals(expectedPropertyUpdates(tags, solutions, features, locales), stats.getPropertyUpdates());
+        assertEquals(expectedRequests(solutions, locales), stats.getRequests());
+        assertEquals(stub.getRequests(), stats.getRequests());
+        assertEquals(0, stats.getFailedRequests());
+        assertEquals(Arrays.asList("content-type", "experience-level", "feature", "role", "solution"),
+                Arrays.asList(stats.getChangedCategories().toArray()));
+        assertEquals(4, stats.getCommits());
+        assertEquals(stats.getTagCreates() + stats.getPropertyUpdates(),
+                stats.getCommitSizes().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(2, stats.getReplications());
+        verify(replicator, times(2)).replicate(any(Session.class), eq(ReplicationActionType.ACTIVATE), anyString());
+
+        TagIdCodec codec = context.getService(TagIdCodec.class);
+        TagManager tagManager = context.resourceResolver().adaptTo(TagManager.class);
+        String solution = ExlApiStub.names("Solution", 1).get(0);
+        String feature = ExlApiStub.names(solution + " Feature", 1).get(0);
+        Tag featureTag = tagManager.resolve(codec.getTagId("feature", solution, feature));
+        assertNotNull(featureTag);
+        assertEquals(feature + " (de)", featureTag.adaptTo(Resource.class)
+                .getValueMap().get("jcr:title.de", String.class));
+
+        // a name whose Base64 contains a slash keeps its encoded name, which nests the tag one level deeper
+        String role = ExlApiStub.names("Role", ExlApiStub.SLASH_NAME_INTERVAL).get(ExlApiStub.SLASH_NAME_INTERVAL - 1);
+        assertTrue(ExlApiStub.encode(role).indexOf('/') > 0, role);
+        String roleTagId = codec.getTagId("role", role);
+        assertEquals(TagIdCodec.TAG_NAMESPACE + "role/" + ExlApiStub.encode(role), roleTagId);
+        Tag roleTag = tagManager.resolve(roleTagId);
+        assertNotNull(roleTag, roleTagId);
+        assertEquals(role, roleTag.adaptTo(Resource.class).getValueMap().get("jcr:title", String.class));
+        assertEquals(role + " (fr)", roleTag.adaptTo(Resource.class).getValueMap().get("jcr:title.fr", String.class));
+    }
+
+    @Test
+    void secondSyncOnlyFetches() throws Exception {
+        TagSynchScheduler scheduler = setUp(20, 2, 3, LOCALES);
+        scheduler.run();
+
+        scheduler.run();
+
+        TagSyncRunStats stats = report("resync", scheduler);
+        assertEquals(0, stats.getTagCreates());
+        assertEquals(0, stats.getPropertyUpdates());
+        assertTrue(stats.getChangedCategories().isEmpty());
+        assertEquals(expectedRequests(2, LOCALES.length), stats.getRequests());
+    }
+
+    @Test
+    void failingEndpointDoesNotStopOtherCategories() throws Exception {
+        int tags = 20;
+        int solutions = 2;
+        TagSynchScheduler scheduler = setUp(tags, solutions, 3, LOCALES);
+        stub.setFailing(ExlApiStub.FEATURES);
+
+        scheduler.run();
+
+        TagSyncRunStats stats = report("failing features api", scheduler);
+        int locales = LOCALES.length;
+        assertEquals(locales * solutions * locales, stats.getFailedRequests());
+        // the solution category still creates its solution tags
+        assertEquals(3 * tags + solutions, stats.getTagCreates());
+        assertEquals(2 * tags * (locales - 1), stats.getPropertyUpdates());
+        assertEquals(4, stats.getCommits());
+    }
+
+    @Test
+    void slowEndpointIsReported() throws Exception {
+        TagSynchScheduler scheduler = setUp(10, 1, 1, LOCALES);
+        stub.setLatency(ExlApiStub.LEVELS, 200);
+
+        scheduler.run();
+
+        TagSyncRunStats stats = report("slow levels api", scheduler);
+        TagSyncRunStats.EndpointStats levels = stats.getEndpoints()
+                .get(StringUtils.substringBefore(stub.url(ExlApiStub.LEVELS), "?"));
+        assertNotNull(levels, "endpoints: " + stats.getEndpoints().keySet());
+        assertEquals(LOCALES.length, levels.getRequests());
+        assertTrue(levels.getMaxMillis() >= 200);
+        assertTrue(stats.getWallTimeMillis() >= 200L * LOCALES.length);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "exlm.tagsync.benchmark", matches = "true")
+    void benchmarkFullCatalog() throws Exception {
+        int tags = Integer.getInteger("exlm.tagsync.tags", 34000);
+        int solutions = Integer.getInteger("exlm.tagsync.solutions", 40);
+        int features = Integer.getInteger("exlm.tagsync.features", 50);
+        TagSynchScheduler scheduler = setUp(tags, solutions, features, ALL_LOCALES);
+
+        scheduler.run();
+
+        TagSyncRunStats stats = report("benchmark", scheduler);
+        assertEquals(expectedCreates(tags, solutions, features), stats.getTagCreates());
+        assertEquals(expectedPropertyUpdates(tags, solutions, features, ALL_LOCALES.length), stats.getPropertyUpdates());
+    }
+
+    /**
+     * Start the stub and activate the sync against it; the sync is not scheduled, tests call run() directly
+     *
+     * @param tags
+     * @param solutions
+     * @param features
+     * @param locales
+     * @return scheduler
+     * @throws Exception
+     */
+    private TagSynchScheduler setUp(int tags, int solutions, int features, String[] locales) throws Exception {
+        stub = new ExlApiStub(tags, solutions, features);
+        context.runMode("author");
+        context.registerService(Scheduler.class, mock(Scheduler.class));
+        context.registerService(Replicator.class, replicator);
+        context.registerInjectActivateService(new TagIdCodec());
+        context.create().resource(TagIdCodec.EXL_TAG_PATH, "jcr:primaryType", "cq:Tag");
+        context.create().page("/content/exlm/taxonomy");
+        context.create().page("/content/exlm/taxonomy/en");
+        context.create().page("/content/exlm/taxonomy/de");
+
+        Map<String, Object> config = new HashMap<>();
+        config.put("serviceEnabled", false);
+        config.put("exlTagApis", stub.getExlTagApis());
+        config.put("tagLocales", locales);
+        return context.registerInjectActivateService(new TagSynchScheduler(), config);
+    }
+
+    private static TagSyncRunStats report(String name, TagSynchScheduler scheduler) {
+        TagSyncRunStats stats = scheduler.getLastRunStats();
+        LOGGER.info("Tag sync harness [{}]: {}", name, stats.toJson(5));
+        return stats;
+    }
+
+    /**
+     * Types, levels and roles create a tag per name; each solution creates its tag, its feature hierarchy tag
+     * and a tag per feature
+     */
+    private static int expectedCreates(int tags, int solutions, int features) {
+        return 3 * tags + solutions + solutions * (features + 1);
+    }
+
+    /**
+     * Levels, roles and features store a localized title per non-English locale
+     */
+    private static int expectedPropertyUpdates(int tags, int solutions, int features, int locales) {
+        return (2 * tags + solutions * features) * (locales - 1);
+    }
+
+    /**
+     * Four categories fetch once per locale; the features of each solution are fetched for all locales
+     * in every locale pass of the solutions
+     */
+    private static int expectedRequests(int solutions, int locales) {
+        return 4 * locales + locales * solutions * locales;
+    }
+}
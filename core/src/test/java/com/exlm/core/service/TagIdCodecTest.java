@@ -0,0 +1,82 @@
+package com.exlm.core.service;
+
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link TagIdCodec} derives the same tag IDs as
+ * {@code Base64.getEncoder().encodeToString(name.getBytes(UTF_8))}, which the
+ * existing tag nodes were created with.
+ */
+@ExtendWith(AemContextExtension.class)
+class TagIdCodecTest {
+
+	private final AemContext context = new AemContext();
+
+	private TagIdCodec codec;
+
+	@BeforeEach
+	void setUp() {
+		// a tiny memo, so evicted names are encoded again
+		codec = context.registerInjectActivateService(new TagIdCodec(),
+				Collections.<String, Object>singletonMap("memoSize", 2));
+	}
+
+	@Test
+	void encodesAsciiNames() {
+		assertEncoded("Reports", "Analytics", "A", "AB", "ABC", "Experience Manager 6.5", "");
+	}
+
+	@Test
+	void encodesNonAsciiNames() {
+		assertEncoded("Über", "Déploiement", "日本語", "한국어", "Emoji 🚀");
+	}
+
+	@Test
+	void encodesNamesWithPlusAndSlash() {
+		assertTrue(encode("~~~").contains("+"));
+		assertTrue(encode("???").contains("/"));
+		assertEncoded("~~~", "???", "Analytics>Reports?");
+	}
+
+	@Test
+	void encodesNamesLongerThanTheBuffers() {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < 3000; i++) {
+			name.append("日本");
+		}
+		assertEncoded(name.toString(), "Reports", name.toString());
+	}
+
+	@Test
+	void buildsHierarchicalIdsAndPaths() {
+		String expected = "feature/" + encode("Analytics") + "/" + encode("Reports");
+		assertEquals(TagIdCodec.TAG_NAMESPACE + expected, codec.getTagId("Feature", "Analytics", "Reports"));
+		assertEquals(TagIdCodec.EXL_TAG_PATH + "/" + expected, codec.getTagPath("Feature", "Analytics", "Reports"));
+		assertEquals(TagIdCodec.TAG_NAMESPACE + "role/" + encode("Admin"), codec.getTagId("Role", " ", "Admin"));
+	}
+
+	private void assertEncoded(String... names) {
+		// twice, so both the encoder and the memo are checked
+		for (int i = 0; i < 2; i++) {
+			for (String name : names) {
+				assertEquals(encode(name), codec.encodeName(name));
+				assertEquals(TagIdCodec.TAG_NAMESPACE + "feature/" + encode(name), codec.getTagId("feature", name));
+			}
+		}
+	}
+
+	private static String encode(String name) {
+		return Base64.getEncoder().encodeToString(name.getBytes(StandardCharsets.UTF_8));
+	}
+}